@@ -3,6 +3,8 @@ package codepanter.anotherbronzemanmode;
 import net.runelite.client.config.Config;
 import net.runelite.client.config.ConfigGroup;
 import net.runelite.client.config.ConfigItem;
+import net.runelite.client.config.Range;
+import net.runelite.client.config.Units;
 
 @ConfigGroup(AnotherBronzemanModePlugin.CONFIG_GROUP)
 public interface AnotherBronzemanModeConfig extends Config
@@ -93,4 +95,53 @@ public interface AnotherBronzemanModeConfig extends Config
 	default boolean hideUntradeables() {
     	return false;
 	}
+
+    @ConfigItem(
+        keyName = "saveDelay",
+        name = "Save delay",
+        description = "Unlocks made within this many milliseconds of each other are written to disk together.",
+        position = 9
+    )
+    @Units(Units.MILLISECONDS)
+    @Range(max = 10000)
+    default int saveDelay()
+    {
+        return 500;
+    }
+
+    @ConfigItem(
+        keyName = "digestWindow",
+        name = "Unlock digest window",
+        description = "Unlocks made within this many milliseconds of an announced unlock are announced together in one notification or chat message.",
+        position = 10
+    )
+    @Units(Units.MILLISECONDS)
+    @Range(max = 60000)
+    default int digestWindow()
+    {
+        return 3000;
+    }
+
+    @ConfigItem(
+        keyName = "digestNames",
+        name = "Unlock digest names",
+        description = "The number of item names listed in a notification or chat message announcing several unlocks.",
+        position = 11
+    )
+    @Range(max = 50)
+    default int digestNames()
+    {
+        return 5;
+    }
+
+    @ConfigItem(
+        keyName = "unlockedFirstInSearch",
+        name = "Unlocked items first in GE search",
+        description = "Lists the unlocked items above the locked ones in the Grand Exchange search results.",
+        position = 12
+    )
+    default boolean unlockedFirstInSearch()
+    {
+        return false;
+    }
 }
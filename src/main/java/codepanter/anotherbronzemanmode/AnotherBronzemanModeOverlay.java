@@ -26,25 +26,33 @@ package codepanter.anotherbronzemanmode;
 
 import net.runelite.api.Client;
 import net.runelite.api.GameState;
-import net.runelite.api.ItemComposition;
 import java.awt.Point;
 import net.runelite.client.game.ItemManager;
 import net.runelite.client.ui.overlay.Overlay;
 import net.runelite.client.ui.overlay.OverlayPosition;
+import net.runelite.client.util.AsyncBufferedImage;
 import net.runelite.client.util.ImageCapture;
 import net.runelite.client.ui.ClientUI;
 import net.runelite.client.ui.DrawManager;
+import net.runelite.client.ui.FontManager;
 import net.runelite.client.util.ImageUploadStyle;
 
 import javax.inject.Inject;
 import javax.swing.SwingUtilities;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
-import java.util.List;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
@@ -54,14 +62,62 @@ public class AnotherBronzemanModeOverlay extends Overlay
     private final Client client;
     private final AnotherBronzemanModePlugin plugin;
 
-    private Integer currentUnlock;
+    private static final int POPUP_X = -62;
+    private static final int POPUP_START_Y = -20;
+    private static final int POPUP_END_Y = 10;
+    // Position of the item icon within the pop-up.
+    private static final int ICON_X = 12;
+    private static final int ICON_Y = 7;
+    // Area of the pop-up holding the "Item unlocked!" text.
+    private static final Rectangle TEXT_AREA = new Rectangle(50, 2, 132, 41);
+    private static final long SLIDE_DURATION_MS = 600;
+    private static final long DISPLAY_DURATION_MS = 5000;
+
+    // Unlocks waiting to be shown. Past this many, new unlocks are only counted.
+    private static final int MAX_QUEUED_UNLOCKS = 1000;
+    // Past this many waiting unlocks, they are all shown together on a single card.
+    private static final int SUMMARY_THRESHOLD = 3;
+    private static final int SUMMARY_ICONS = 3;
+    private static final int SUMMARY_ICON_OFFSET = 4;
+
+    // Written by the client thread, read by the overlay.
+    private final Queue<ItemObject> itemUnlockQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queuedUnlocks = new AtomicInteger();
+    // Unlocks that did not fit in the queue, shown as part of the next summary card.
+    private final AtomicInteger overflowedUnlocks = new AtomicInteger();
+    private final AtomicLong totalOverflowedUnlocks = new AtomicLong();
+
+    // The unlocks on the current pop-up, or null if no pop-up is shown.
+    private ItemObject[] currentUnlocks;
+    // Number of unlocks on the current pop-up, including overflowed ones that have no icon.
+    private int currentUnlockCount;
     private long displayTime;
-    private int displayY;
+    // The current pop-up with its icons drawn in, or null while the icons are loading.
+    private volatile BufferedImage currentPopup;
+
+    private int renderedFrames;
+    private long totalRenderTime;
+    private long maxRenderTime;
 
-    private final List<Integer> itemUnlockList;
     private boolean screenshotUnlock;
     private boolean includeFrame;
 
+    // Pop-ups finishing within this long of the first one are saved as a single screenshot.
+    private static final long SCREENSHOT_BURST_MS = 10000;
+    private static final int SCREENSHOT_NAMES = 5;
+    // Screenshots waiting to be encoded. Past this many, new screenshots are dropped.
+    private static final int MAX_PENDING_SCREENSHOTS = 3;
+    private static final int MAX_SCREENSHOT_BUFFERS = 2;
+
+    // Names of the unlocks on the pop-ups of the current burst, and how many more unlocks it has without a name.
+    private final List<String> screenshotNames = new ArrayList<>();
+    private int screenshotUnnamed;
+    private long screenshotBurstStart;
+
+    private final Semaphore pendingScreenshots = new Semaphore(MAX_PENDING_SCREENSHOTS);
+    private final Deque<BufferedImage> screenshotBuffers = new ConcurrentLinkedDeque<>();
+    private final AtomicLong droppedScreenshots = new AtomicLong();
+
     @Inject
     private ItemManager itemManager;
 
@@ -83,15 +139,37 @@ public class AnotherBronzemanModeOverlay extends Overlay
         super(plugin);
         this.client = client;
         this.plugin = plugin;
-        this.itemUnlockList = new ArrayList<>();
         this.screenshotUnlock = false;
         this.includeFrame = false;
         setPosition(OverlayPosition.TOP_CENTER);
     }
 
-    public void addItemUnlock(int itemId)
+    /**
+     * Queues the pop-up of an unlock. Can be called from any thread.
+     */
+    public void addItemUnlock(ItemObject item)
+    {
+        if (queuedUnlocks.incrementAndGet() > MAX_QUEUED_UNLOCKS)
+        {
+            queuedUnlocks.decrementAndGet();
+            overflowedUnlocks.incrementAndGet();
+            long overflowed = totalOverflowedUnlocks.incrementAndGet();
+            log.debug("Unlock pop-up queue is full, {} unlocks overflowed so far", overflowed);
+            return;
+        }
+        itemUnlockQueue.offer(item);
+    }
+
+    /**
+     * Queues the pop-ups of a batch of unlocks, which are shown together on a summary card if there are enough of
+     * them. Can be called from any thread.
+     */
+    public void addItemUnlocks(List<ItemObject> items)
     {
-        itemUnlockList.add(itemId);
+        for (ItemObject item : items)
+        {
+            addItemUnlock(item);
+        }
     }
 
     public void updateScreenshotUnlock(boolean doScreenshotUnlock, boolean doIncludeFrame)
@@ -103,7 +181,7 @@ public class AnotherBronzemanModeOverlay extends Overlay
     @Override
     public Dimension render(Graphics2D graphics)
     {
-        if (client.getGameState() != GameState.LOGGED_IN || itemUnlockList.isEmpty())
+        if (currentUnlocks == null && itemUnlockQueue.isEmpty() || client.getGameState() != GameState.LOGGED_IN)
         {
             return null;
         }
@@ -111,86 +189,306 @@ public class AnotherBronzemanModeOverlay extends Overlay
         {
             return null;
         }
-        if (currentUnlock == null)
+
+        long renderStart = System.nanoTime();
+        long now = System.currentTimeMillis();
+        if (currentUnlocks == null && !showNextUnlocks(now))
         {
-            currentUnlock = itemUnlockList.get(0);
-            displayTime = System.currentTimeMillis();
-            displayY = -20;
             return null;
         }
 
+        // Slide the pop-up in from the top of the screen, at the same speed whatever the frame rate.
+        long elapsed = now - displayTime;
+        int displayY = POPUP_START_Y + (int) (Math.min(elapsed, SLIDE_DURATION_MS) * (POPUP_END_Y - POPUP_START_Y) / SLIDE_DURATION_MS);
+
         // Drawing unlock pop-up at the top of the screen.
-        graphics.drawImage(plugin.getUnlockImage(),-62, displayY, null);
-        graphics.drawImage(itemManager.getImage(currentUnlock, 1, false),-50, displayY + 7, null);
-        if (displayY < 10)
-        {
-            displayY = displayY + 1;
-        }
+        BufferedImage popup = currentPopup;
+        graphics.drawImage(popup != null ? popup : plugin.getUnlockImage(), POPUP_X, displayY, null);
 
-        if (System.currentTimeMillis() > displayTime + (5000))
+        if (elapsed > DISPLAY_DURATION_MS)
         {
             if (screenshotUnlock)
             {
-                int itemID = currentUnlock;
-                ItemComposition itemComposition = itemManager.getItemComposition(itemID);
-                String itemName = itemComposition.getMembersName();
-                String fileName = "ItemUnlocked " + itemName + " ";
-                takeScreenshot(fileName);
+                addToScreenshot(now);
             }
-            itemUnlockList.remove(currentUnlock);
-            currentUnlock = null;
+            currentUnlocks = null;
+            currentPopup = null;
+            logRenderTime();
         }
+
+        long renderTime = System.nanoTime() - renderStart;
+        renderedFrames++;
+        totalRenderTime += renderTime;
+        maxRenderTime = Math.max(maxRenderTime, renderTime);
         return null;
     }
 
+    /**
+     * Takes the next unlock off the queue, or all of them if enough are waiting, and composes their pop-up once the
+     * icons have loaded.
+     *
+     * @return false if there was nothing to show.
+     */
+    private boolean showNextUnlocks(long now)
+    {
+        final boolean summary = queuedUnlocks.get() > SUMMARY_THRESHOLD || overflowedUnlocks.get() > 0;
+        final int overflowed = summary ? overflowedUnlocks.getAndSet(0) : 0;
+        final ItemObject[] unlocks = pollUnlocks(summary ? queuedUnlocks.get() : 1);
+        final int unlockCount = unlocks.length + overflowed;
+        if (unlockCount == 0)
+        {
+            return false;
+        }
+
+        currentUnlocks = unlocks;
+        currentUnlockCount = unlockCount;
+        displayTime = now;
+        currentPopup = null;
+
+        final BufferedImage background = plugin.getUnlockImage();
+        final AsyncBufferedImage[] icons = new AsyncBufferedImage[Math.min(unlocks.length, SUMMARY_ICONS)];
+        if (icons.length == 0)
+        {
+            currentPopup = composeSummary(background, icons, unlockCount);
+            return true;
+        }
+
+        final AtomicInteger loadingIcons = new AtomicInteger(icons.length);
+        for (int i = 0; i < icons.length; i++)
+        {
+            icons[i] = itemManager.getImage(unlocks[i].getId(), 1, false);
+        }
+        for (AsyncBufferedImage icon : icons)
+        {
+            icon.onLoaded(() ->
+            {
+                // The pop-up may have been dismissed while the icons were loading.
+                if (loadingIcons.decrementAndGet() == 0 && currentUnlocks == unlocks)
+                {
+                    currentPopup = unlockCount == 1
+                            ? composePopup(background, icons[0])
+                            : composeSummary(background, icons, unlockCount);
+                }
+            });
+        }
+        return true;
+    }
+
+    private ItemObject[] pollUnlocks(int count)
+    {
+        ItemObject[] unlocks = new ItemObject[Math.max(count, 0)];
+        int polled = 0;
+        ItemObject item;
+        while (polled < unlocks.length && (item = itemUnlockQueue.poll()) != null)
+        {
+            queuedUnlocks.decrementAndGet();
+            unlocks[polled++] = item;
+        }
+        return polled == unlocks.length ? unlocks : Arrays.copyOf(unlocks, polled);
+    }
+
+    private static BufferedImage composePopup(BufferedImage background, BufferedImage icon)
+    {
+        BufferedImage popup = new BufferedImage(background.getWidth(), background.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = popup.createGraphics();
+        graphics.drawImage(background, 0, 0, null);
+        graphics.drawImage(icon, ICON_X, ICON_Y, null);
+        graphics.dispose();
+        return popup;
+    }
+
+    /**
+     * Composes a card showing the first few icons stacked on top of each other, and the number of unlocks in place
+     * of the "Item unlocked!" text.
+     */
+    private static BufferedImage composeSummary(BufferedImage background, BufferedImage[] icons, int unlockCount)
+    {
+        BufferedImage popup = new BufferedImage(background.getWidth(), background.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = popup.createGraphics();
+        graphics.drawImage(background, 0, 0, null);
+
+        int offset = -SUMMARY_ICON_OFFSET * (icons.length - 1) / 2;
+        for (BufferedImage icon : icons)
+        {
+            graphics.drawImage(icon, ICON_X + offset, ICON_Y + offset, null);
+            offset += SUMMARY_ICON_OFFSET;
+        }
+
+        graphics.setColor(new Color(background.getRGB(TEXT_AREA.x, TEXT_AREA.y), true));
+        graphics.fill(TEXT_AREA);
+
+        graphics.setFont(FontManager.getRunescapeBoldFont());
+        FontMetrics metrics = graphics.getFontMetrics();
+        String text = unlockCount + " items unlocked!";
+        if (metrics.stringWidth(text) > TEXT_AREA.width)
+        {
+            text = unlockCount + " unlocks!";
+        }
+        int x = TEXT_AREA.x + (TEXT_AREA.width - metrics.stringWidth(text)) / 2;
+        int y = TEXT_AREA.y + (TEXT_AREA.height + metrics.getAscent() - metrics.getDescent()) / 2;
+        graphics.setColor(Color.BLACK);
+        graphics.drawString(text, x + 1, y + 1);
+        graphics.setColor(Color.WHITE);
+        graphics.drawString(text, x, y);
+        graphics.dispose();
+        return popup;
+    }
+
+    private void logRenderTime()
+    {
+        if (renderedFrames > 0)
+        {
+            log.debug("Unlock pop-up rendered {} frames in {} us on average, {} us at most",
+                    renderedFrames, totalRenderTime / renderedFrames / 1000, maxRenderTime / 1000);
+        }
+        renderedFrames = 0;
+        totalRenderTime = 0;
+        maxRenderTime = 0;
+    }
+
+    /**
+     * Adds the unlocks of the pop-up that just finished to the screenshot of the current burst, and takes that
+     * screenshot once no pop-up follows or the burst has lasted long enough.
+     */
+    private void addToScreenshot(long now)
+    {
+        if (screenshotNames.isEmpty() && screenshotUnnamed == 0)
+        {
+            screenshotBurstStart = now;
+        }
+
+        for (ItemObject item : currentUnlocks)
+        {
+            screenshotNames.add(item.getName());
+        }
+        screenshotUnnamed += currentUnlockCount - currentUnlocks.length;
+
+        if (!itemUnlockQueue.isEmpty() && now - screenshotBurstStart < SCREENSHOT_BURST_MS)
+        {
+            return;
+        }
+
+        takeScreenshot(screenshotFileName(screenshotNames, screenshotUnnamed));
+        screenshotNames.clear();
+        screenshotUnnamed = 0;
+    }
+
+    private static String screenshotFileName(List<String> names, int unnamed)
+    {
+        if (names.size() == 1 && unnamed == 0)
+        {
+            return "ItemUnlocked " + names.get(0) + " ";
+        }
+
+        int listed = Math.min(names.size(), SCREENSHOT_NAMES);
+        int more = names.size() - listed + unnamed;
+        String fileName = "ItemsUnlocked " + String.join(", ", names.subList(0, listed));
+        if (more > 0)
+        {
+            fileName += " and " + more + " more";
+        }
+        return fileName + " ";
+    }
+
     /**
      * Saves a screenshot of the client window to the screenshot folder as a PNG,
      * and optionally uploads it to an image-hosting service.
+     * The next frame is copied into a pooled buffer on the game thread and encoded on the executor, so neither the
+     * game nor the event dispatch thread waits for it.
      *
      * @param fileName    Filename to use, without file extension.
      */
     private void takeScreenshot(String fileName)
     {
+        if (!pendingScreenshots.tryAcquire())
+        {
+            long dropped = droppedScreenshots.incrementAndGet();
+            log.warn("Too many unlock screenshots waiting to be saved, dropped {} so far", dropped);
+            return;
+        }
+
+        final boolean frame = includeFrame;
         Consumer<Image> imageCallback = (img) ->
         {
-            // This callback is on the game thread, move to executor thread
-            executor.submit(() -> takeScreenshot(fileName, img));
+            // This callback is on the game thread, copy the frame before the game draws over it
+            BufferedImage game = acquireScreenshotBuffer(img.getWidth(null), img.getHeight(null));
+            Graphics2D graphics = game.createGraphics();
+            graphics.setComposite(AlphaComposite.Src);
+            graphics.drawImage(img, 0, 0, null);
+            graphics.dispose();
+
+            if (frame)
+            {
+                // The client frame can only be painted on the event dispatch thread
+                SwingUtilities.invokeLater(() -> paintFrame(fileName, game));
+            }
+            else
+            {
+                saveScreenshot(fileName, game);
+            }
         };
 
         drawManager.requestNextFrameListener(imageCallback);
     }
 
-    private void takeScreenshot(String fileName, Image image)
+    private void paintFrame(String fileName, BufferedImage game)
     {
-        BufferedImage screenshot = includeFrame
-                ? new BufferedImage(clientUi.getWidth(), clientUi.getHeight(), BufferedImage.TYPE_INT_ARGB)
-                : new BufferedImage(image.getWidth(null), image.getHeight(null), BufferedImage.TYPE_INT_ARGB);
+        BufferedImage screenshot = acquireScreenshotBuffer(clientUi.getWidth(), clientUi.getHeight());
+        Graphics2D graphics = screenshot.createGraphics();
+        graphics.setComposite(AlphaComposite.Clear);
+        graphics.fillRect(0, 0, screenshot.getWidth(), screenshot.getHeight());
+        graphics.setComposite(AlphaComposite.SrcOver);
 
-        Graphics graphics = screenshot.getGraphics();
+        // Draw the client frame onto the screenshot
+        clientUi.paint(graphics);
 
-        int gameOffsetX = 0;
-        int gameOffsetY = 0;
+        // Draw the game onto the screenshot, at the position of the game inside the frame
+        final Point canvasOffset = clientUi.getCanvasOffset();
+        graphics.drawImage(game, (int) canvasOffset.getX(), (int) canvasOffset.getY(), null);
+        graphics.dispose();
 
-        if (includeFrame)
+        releaseScreenshotBuffer(game);
+        saveScreenshot(fileName, screenshot);
+    }
+
+    private void saveScreenshot(String fileName, BufferedImage screenshot)
+    {
+        executor.execute(() ->
         {
-            // Draw the client frame onto the screenshot
             try
             {
-                SwingUtilities.invokeAndWait(() -> clientUi.paint(graphics));
+                imageCapture.takeScreenshot(screenshot, fileName, "Item Unlocks", false, ImageUploadStyle.NEITHER);
             }
-            catch (InterruptedException | InvocationTargetException e)
+            finally
             {
-                log.warn("unable to paint client UI on screenshot", e);
+                releaseScreenshotBuffer(screenshot);
+                pendingScreenshots.release();
             }
+        });
+    }
 
-            // Evaluate the position of the game inside the frame
-            final Point canvasOffset = clientUi.getCanvasOffset();
-            gameOffsetX = (int)canvasOffset.getX();
-            gameOffsetY = (int)canvasOffset.getY();
+    /**
+     * @return a pooled buffer of the given size, or a new one if none is free.
+     */
+    private BufferedImage acquireScreenshotBuffer(int width, int height)
+    {
+        BufferedImage buffer;
+        while ((buffer = screenshotBuffers.poll()) != null)
+        {
+            // Buffers of another size are left over from before the client was resized
+            if (buffer.getWidth() == width && buffer.getHeight() == height)
+            {
+                return buffer;
+            }
         }
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    }
 
-        // Draw the game onto the screenshot
-        graphics.drawImage(image, gameOffsetX, gameOffsetY, null);
-        imageCapture.takeScreenshot(screenshot, fileName, "Item Unlocks", false, ImageUploadStyle.NEITHER);
+    private void releaseScreenshotBuffer(BufferedImage buffer)
+    {
+        if (screenshotBuffers.size() < MAX_SCREENSHOT_BUFFERS)
+        {
+            screenshotBuffers.offer(buffer);
+        }
     }
 }
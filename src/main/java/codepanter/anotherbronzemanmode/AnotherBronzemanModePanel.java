@@ -17,17 +17,25 @@ import javax.inject.Inject;
 import javax.inject.Singleton;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Singleton
 @Slf4j
 public class AnotherBronzemanModePanel extends PluginPanel
 {
-    private static final int COLUMN_SIZE = 5;
-    private static final int ICON_WIDTH = 36;
-    private static final int ICON_HEIGHT = 32;
+    private static final int SEARCH_DELAY_MS = 250;
+    private static final int REFRESH_DELAY_MS = 500;
 
     @Inject
     AnotherBronzemanModePlugin plugin;
@@ -43,7 +51,30 @@ public class AnotherBronzemanModePanel extends PluginPanel
 
     JPanel itemsPanel;
 
-    AnotherBronzemanModePanel()
+    private final JPanel titlePanel;
+    private final JLabel titleLabel;
+    private final UnlockGrid unlockGrid;
+    private final JPopupMenu popupMenu;
+    private final JMenuItem inspectButton;
+    private final JMenuItem deleteButton;
+
+    // The item the popup menu was opened on.
+    private ItemObject popupItem;
+
+    // One dropdown per facet group, holding the group's "any" choice followed by its facets.
+    private final List<JComboBox<Object>> facetDropDowns = new ArrayList<>();
+    private Map<ItemFacet, Integer> facetCounts = new EnumMap<>(ItemFacet.class);
+
+    // Runs the filter currently selected in the panel.
+    private final Runnable filter;
+    private final Timer refreshTimer;
+    // Whether the unlocks changed since the shown items were filtered. Set from the client thread.
+    private final AtomicBoolean itemsDirty = new AtomicBoolean();
+    private boolean itemsShown;
+    private boolean active;
+
+    @Inject
+    AnotherBronzemanModePanel(ItemIconCache iconCache)
     {
         setLayout(new BorderLayout());
         setBackground(ColorScheme.DARK_GRAY_COLOR);
@@ -83,13 +114,80 @@ public class AnotherBronzemanModePanel extends PluginPanel
         showUntradeableItems.setSelected(true);
         selectionPanel.add(showUntradeableItems);
 
-        // TO-DO: Add a search function
+        // Facet dropdowns
+        JLabel facetLabel = new JLabel();
+        facetLabel.setText("Item filters: ");
+        selectionPanel.add(facetLabel);
+
+        for (ItemFacet.Group group : ItemFacet.Group.values())
+        {
+            JComboBox<Object> facetDropDown = new JComboBox<>();
+            facetDropDown.addItem(group.getAnyName());
+            for (ItemFacet facet : ItemFacet.values())
+            {
+                if (facet.getGroup() == group)
+                {
+                    facetDropDown.addItem(facet);
+                }
+            }
+            facetDropDown.setFocusable(false);
+            facetDropDown.setRenderer(new FacetDropdownRenderer());
+            facetDropDowns.add(facetDropDown);
+            selectionPanel.add(facetDropDown);
+        }
+
+        filter = () ->
+        {
+            itemsShown = true;
+            itemsDirty.set(false);
+            // Read the components here on the event dispatch thread, not on the client thread.
+            final boolean showUntradeable = showUntradeableItems.isSelected();
+            final SortOption sortOption = (SortOption) sortDropDown.getSelectedItem();
+            final String search = searchBar.getText();
+            final Set<ItemFacet> facets = getSelectedFacets();
+            clientThread.invokeLater(() -> plugin.unlockFilter(showUntradeable, sortOption, search, facets));
+        };
+
+        sortDropDown.addActionListener(e -> filter.run());
+        showUntradeableItems.addActionListener(e -> filter.run());
+        for (JComboBox<Object> facetDropDown : facetDropDowns)
+        {
+            facetDropDown.addActionListener(e -> filter.run());
+        }
+
+        // Refresh at most once per delay, however many unlocks happen in between
+        refreshTimer = new Timer(REFRESH_DELAY_MS, e -> refreshItems());
+        refreshTimer.setRepeats(false);
+
+        // Search as you type, once typing pauses
+        final Timer searchTimer = new Timer(SEARCH_DELAY_MS, e -> filter.run());
+        searchTimer.setRepeats(false);
+        searchBar.getDocument().addDocumentListener(new DocumentListener()
+        {
+            @Override
+            public void insertUpdate(DocumentEvent e)
+            {
+                searchTimer.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e)
+            {
+                searchTimer.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e)
+            {
+                searchTimer.restart();
+            }
+        });
 
         // Button to search bank
         JButton filterButton = new JButton();
         filterButton.addActionListener((actionEvent) ->
         {
-            clientThread.invokeLater(() -> plugin.unlockFilter(showUntradeableItems.isSelected(), (SortOption) sortDropDown.getSelectedItem(), searchBar.getText()));
+            filter.run();
             plugin.setSavedVersionString(plugin.getCurrentVersionString());
         });
         filterButton.setText("View Unlocked Items");
@@ -104,6 +202,132 @@ public class AnotherBronzemanModePanel extends PluginPanel
         itemsPanel.setLayout(new BoxLayout(itemsPanel, BoxLayout.Y_AXIS));
 
         add(itemsPanel);
+
+        //print item names
+        titlePanel = new JPanel();
+        titlePanel.setLayout(new BorderLayout());
+        titleLabel = new JLabel();
+        titleLabel.setHorizontalAlignment(SwingConstants.CENTER);
+        titlePanel.add(titleLabel, BorderLayout.CENTER);
+
+        unlockGrid = new UnlockGrid(iconCache);
+
+        // One popup menu for the whole grid, filled in for the item that was clicked
+        popupMenu = new JPopupMenu();
+        popupMenu.setBorder(new EmptyBorder(10, 10, 10, 10));
+
+        inspectButton = new JMenuItem();
+        inspectButton.addActionListener(e ->
+        {
+            final ItemObject item = popupItem;
+            final ChatMessageBuilder examination = new ChatMessageBuilder()
+            .append(ChatColorType.NORMAL)
+            .append("This is an unlocked item called '" + item.getName() + "'.");
+
+            chatMessageManager.queue(QueuedMessage.builder()
+                    .type(ChatMessageType.ITEM_EXAMINE)
+                    .runeLiteFormattedMessage(examination.build())
+                    .build());
+        });
+        popupMenu.add(inspectButton);
+
+        deleteButton = new JMenuItem();
+        deleteButton.addActionListener(e ->
+        {
+            final ItemObject item = popupItem;
+            if (plugin.isDeletionConfirmed("Do you want to re-lock: " + item.getName(), "Warning"))
+            {
+                clientThread.invokeLater(() -> plugin.queueItemDelete(item.getId()));
+                plugin.sendChatMessage("Item '" + item.getName() + "' is no longer unlocked.");
+            }
+        });
+        popupMenu.add(deleteButton);
+
+        unlockGrid.addMouseListener(new MouseAdapter()
+        {
+            @Override
+            public void mousePressed(MouseEvent e)
+            {
+                showPopupMenu(e);
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e)
+            {
+                showPopupMenu(e);
+            }
+        });
+    }
+
+    /**
+     * Marks the shown items as outdated. They are filtered again after a short delay, or once the panel is opened
+     * if it is hidden. Can be called from any thread.
+     */
+    public void invalidateItems()
+    {
+        if (!itemsDirty.getAndSet(true))
+        {
+            SwingUtilities.invokeLater(refreshTimer::start);
+        }
+    }
+
+    @Override
+    public void onActivate()
+    {
+        active = true;
+        refreshItems();
+    }
+
+    @Override
+    public void onDeactivate()
+    {
+        active = false;
+    }
+
+    private void refreshItems()
+    {
+        // A hidden panel is refreshed when it is opened again.
+        if (!active || !itemsDirty.get())
+        {
+            return;
+        }
+
+        if (itemsShown)
+        {
+            filter.run(); // Re-run the shown filter
+        }
+        else
+        {
+            itemsDirty.set(false);
+        }
+    }
+
+    /**
+     * Shows how many unlocks every facet would show next to it in the dropdowns.
+     */
+    public void displayFacetCounts(Map<ItemFacet, Integer> counts)
+    {
+        SwingUtilities.invokeLater(() ->
+        {
+            facetCounts = counts;
+            for (JComboBox<Object> facetDropDown : facetDropDowns)
+            {
+                facetDropDown.repaint();
+            }
+        });
+    }
+
+    private Set<ItemFacet> getSelectedFacets()
+    {
+        Set<ItemFacet> facets = EnumSet.noneOf(ItemFacet.class);
+        for (JComboBox<Object> facetDropDown : facetDropDowns)
+        {
+            if (facetDropDown.getSelectedItem() instanceof ItemFacet)
+            {
+                facets.add((ItemFacet) facetDropDown.getSelectedItem());
+            }
+        }
+        return facets;
     }
 
     public void displayItems(List<ItemObject> filteredItems)
@@ -113,86 +337,15 @@ public class AnotherBronzemanModePanel extends PluginPanel
 
             if (!filteredItems.isEmpty())
             {
-                //print item names
-                JPanel titlePanel = new JPanel();
-                titlePanel.setLayout(new BorderLayout());
-
                 //Get title and unlock count
-                JLabel titleLabel = new JLabel();
                 titleLabel.setText("Bronzeman Unlocks: " + Integer.toString(filteredItems.size()));
-                titleLabel.setHorizontalAlignment(SwingConstants.CENTER);
-
-                // Add to panel
-                titlePanel.add(titleLabel, BorderLayout.CENTER);
                 itemsPanel.add(titlePanel);
 
-                JPanel itemContainer = new JPanel();
-                EmptyBorder itemBorder = new EmptyBorder(10, 10, 10, 10);
-
-                itemContainer.setBackground(ColorScheme.DARK_GRAY_COLOR);
-                itemContainer.setBorder(itemBorder);
-                itemContainer.setLayout(new GridLayout(0, COLUMN_SIZE, 1, 1));
-
-                for (ItemObject item : filteredItems) {
-                    JPanel itemPanel = new JPanel();
-                    JLabel itemLabel = new JLabel();
-
-                    itemLabel.setHorizontalAlignment(SwingConstants.CENTER);
-                    itemLabel.setVerticalAlignment(SwingConstants.CENTER);
-                    item.getIcon().addTo(itemLabel);
-                    itemLabel.setSize(item.getIcon().getWidth(), item.getIcon().getHeight());
-                    itemLabel.setMaximumSize(new Dimension(ICON_WIDTH, ICON_HEIGHT));
-                    itemLabel.setToolTipText(item.getName());
-
-                    // Create popup menu
-                    final JPopupMenu popupMenu = new JPopupMenu();
-                    popupMenu.setBorder(itemBorder);
-                    itemPanel.setComponentPopupMenu(popupMenu);
-
-                    final JMenuItem inspectButton = new JMenuItem("Inspect " + item.getName());
-                    inspectButton.addActionListener(e ->
-                    {
-                        final ChatMessageBuilder examination = new ChatMessageBuilder()
-                        .append(ChatColorType.NORMAL)
-                        .append("This is an unlocked item called '" + item.getName() + "'.");
-
-                        chatMessageManager.queue(QueuedMessage.builder()
-                                .type(ChatMessageType.ITEM_EXAMINE)
-                                .runeLiteFormattedMessage(examination.build())
-                                .build());
-                    });
-                    popupMenu.add(inspectButton);
-
-                    final JMenuItem deleteButton = new JMenuItem("Remove " + item.getName());
-                    deleteButton.addActionListener(e ->
-                    {
-                        if (plugin.isDeletionConfirmed("Do you want to re-lock: " + item.getName(), "Warning"))
-                        {
-                            plugin.queueItemDelete(item.getId());
-                            plugin.sendChatMessage("Item '" + item.getName() + "' is no longer unlocked.");
-                            displayItems(new ArrayList<ItemObject>()); // Redraw the panel
-                        }
-                    });
-                    popupMenu.add(deleteButton);
-
-                    itemPanel.setBackground(ColorScheme.DARKER_GRAY_COLOR);
-
-                    itemPanel.add(itemLabel);
-                    itemContainer.add(itemPanel);
-                }
-                if (filteredItems.size() % COLUMN_SIZE != 0)
-                {
-                    for (int i = 0; i < COLUMN_SIZE - (filteredItems.size() % COLUMN_SIZE); i++)
-                    {
-                        JPanel panel = new JPanel();
-                        panel.setBackground(ColorScheme.DARKER_GRAY_COLOR);
-                        itemContainer.add(panel);
-                    }
-                }
-
-                itemsPanel.add(itemContainer);
+                unlockGrid.setItems(filteredItems);
+                itemsPanel.add(unlockGrid);
             }
             else {
+                unlockGrid.setItems(filteredItems);
                 displayMessage("No items found.");
             }
 
@@ -201,6 +354,25 @@ public class AnotherBronzemanModePanel extends PluginPanel
         }));
     }
 
+    private void showPopupMenu(MouseEvent e)
+    {
+        if (!e.isPopupTrigger())
+        {
+            return;
+        }
+
+        ItemObject item = unlockGrid.getItemAt(e.getPoint());
+        if (item == null)
+        {
+            return;
+        }
+
+        popupItem = item;
+        inspectButton.setText("Inspect " + item.getName());
+        deleteButton.setText("Remove " + item.getName());
+        popupMenu.show(unlockGrid, e.getX(), e.getY());
+    }
+
     public void displayMessage(final String message)
     {
         itemsPanel.removeAll();
@@ -218,6 +390,17 @@ public class AnotherBronzemanModePanel extends PluginPanel
         revalidate();
     }
 
+    private class FacetDropdownRenderer extends DefaultListCellRenderer {
+        public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
+            if (value instanceof ItemFacet) {
+                ItemFacet facet = (ItemFacet) value;
+                Integer count = facetCounts.get(facet);
+                value = count == null ? facet.getDisplayName() : facet.getDisplayName() + " (" + count + ")";
+            }
+            return super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+        }
+    }
+
     private static class SortOptionDropdownRenderer extends DefaultListCellRenderer {
         public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
             value = ((SortOption) value).getDisplayName();
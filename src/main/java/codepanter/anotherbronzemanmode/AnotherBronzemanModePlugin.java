@@ -24,11 +24,11 @@
  */
 package codepanter.anotherbronzemanmode;
 
-import com.google.common.reflect.TypeToken;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.*;
 import net.runelite.api.events.*;
+import net.runelite.client.events.ClientShutdown;
 import net.runelite.client.events.PluginChanged;
 import net.runelite.api.ChatMessageType;
 import net.runelite.api.widgets.*;
@@ -38,7 +38,6 @@ import net.runelite.client.eventbus.Subscribe;
 import net.runelite.client.plugins.Plugin;
 import net.runelite.client.plugins.PluginDescriptor;
 import net.runelite.client.ui.overlay.OverlayManager;
-import net.runelite.api.ItemComposition;
 import net.runelite.api.ItemContainer;
 import net.runelite.client.Notifier;
 import net.runelite.client.game.ItemManager;
@@ -46,7 +45,6 @@ import net.runelite.client.game.chatbox.ChatboxPanelManager;
 import net.runelite.client.game.chatbox.ChatboxTextInput;
 import net.runelite.client.events.ConfigChanged;
 import net.runelite.client.config.ConfigManager;
-import net.runelite.client.util.AsyncBufferedImage;
 import net.runelite.client.util.Text;
 import net.runelite.client.game.WorldService;
 import net.runelite.http.api.worlds.World;
@@ -66,19 +64,17 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.*;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
 import java.util.*;
 import java.text.SimpleDateFormat;
 import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 
 import com.google.common.collect.ImmutableSet;
 import com.google.inject.Provides;
 
-import static net.runelite.http.api.RuneLiteAPI.GSON;
-
 @Slf4j
 @PluginDescriptor(
         name = "Another Bronzeman Mode",
@@ -95,6 +91,8 @@ public class AnotherBronzemanModePlugin extends Plugin
 
     private static final int GE_SEARCH_BUILD_SCRIPT = 751;
     private static final int GE_REGION_ID = 12598;
+    // Time spent indexing the loaded unlocks per client tick, so logging in with many unlocks does not stall a frame.
+    private static final long INDEX_BUDGET_NANOS = 1_000_000;
 
     private boolean LOGGING_IN = false;
 
@@ -145,6 +143,27 @@ public class AnotherBronzemanModePlugin extends Plugin
     @Inject
     private ClientToolbar clientToolbar;
 
+    @Inject
+    private UnlockPersistence unlockPersistence;
+
+    @Inject
+    private ItemMetadataTable itemMetadata;
+
+    @Inject
+    private ItemMetadataCache itemMetadataCache;
+
+    @Inject
+    private UnlockFilter unlockFilter;
+
+    @Inject
+    private ItemIconCache itemIconCache;
+
+    @Inject
+    private ItemFacets itemFacets;
+
+    @Inject
+    private ScheduledExecutorService executor;
+
     private AnotherBronzemanModePanel panel;
 
     private NavigationButton navButton;
@@ -152,7 +171,7 @@ public class AnotherBronzemanModePlugin extends Plugin
     @Inject
     private AnotherBronzemanModeOverlay AnotherBronzemanModeOverlay;
 
-    private List<Integer> unlockedItems;
+    private UnlockedItems unlockedItems;
 
     @Getter
     private BufferedImage unlockImage = null;
@@ -163,13 +182,34 @@ public class AnotherBronzemanModePlugin extends Plugin
     private Widget searchButton;
     private Collection<Widget> itemEntries;
 
-    private List<String> namesBronzeman = new ArrayList<>();
+    // Configured names with non-breaking spaces replaced, see normalizeName.
+    private Set<String> namesBronzeman = new HashSet<>();
+    // Seasonal flag per world number, built from seasonalWorldsSource.
+    private boolean[] seasonalWorlds = new boolean[0];
+    private WorldResult seasonalWorldsSource;
     private int bronzemanIconOffset = -1; // offset for bronzeman icon
+    // Chat is refreshed at most once per client tick, see requestChatRefresh.
+    private boolean chatRefreshPending;
+    private int chatRefreshesAvoided;
     private boolean onSeasonalWorld;
-    private File legacyFile;
     private File legacyFolder;
-    private File profileFile;
     private File profileFolder;
+    private boolean unlocksLoaded;
+    // Set once every loaded unlock is in the search index, name order and facets, until then the panel is not filtered.
+    private boolean unlocksIndexed;
+    private boolean unlocksRequested;
+    // Set when the unlocks of the current profile could not be read, which stops collecting unlock candidates.
+    private boolean unlocksLoadFailed;
+    private int unlocksLoadGeneration;
+    private long loginStartTime;
+    private final UnlockedItems unlockCandidates = new UnlockedItems();
+    private final ItemContainerTracker itemContainerTracker = new ItemContainerTracker();
+    private final UnlockSearchIndex searchIndex = new UnlockSearchIndex();
+    private final UnlockNameOrder nameOrder = new UnlockNameOrder();
+    private final UnlockQueryCache queryCache = new UnlockQueryCache();
+    // Names of the unlocks waiting to be announced, while a digest window is open.
+    private final List<String> digestNames = new ArrayList<>();
+    private boolean digestOpen;
     private String profileKey;
 
     // current version of the plugin
@@ -189,7 +229,10 @@ public class AnotherBronzemanModePlugin extends Plugin
         updateNamesBronzeman();
         updateScreenshotUnlock();
         loadResources();
-        unlockedItems = new ArrayList<>();
+        unlockedItems = new UnlockedItems();
+        unlockPersistence.start();
+        itemMetadataCache.setChangeListener(this::onItemMetadataChanged);
+        itemMetadataCache.startUp();
         overlayManager.add(AnotherBronzemanModeOverlay);
         chatCommandManager.registerCommand(BM_UNLOCKS_STRING, this::OnUnlocksCountCommand);
         chatCommandManager.registerCommand(BM_COUNT_STRING, this::OnUnlocksCountCommand);
@@ -247,6 +290,15 @@ public class AnotherBronzemanModePlugin extends Plugin
         super.shutDown();
         itemEntries = null;
         unlockedItems = null;
+        unlocksLoaded = false;
+        unlocksIndexed = false;
+        unlocksRequested = false;
+        unlocksLoadFailed = false;
+        unlockCandidates.clear();
+        itemContainerTracker.clear();
+        digestNames.clear();
+        unlockPersistence.stop(); // Blocks until every unlock is written
+        itemMetadataCache.shutDown();
         overlayManager.remove(AnotherBronzemanModeOverlay);
         chatCommandManager.unregisterCommand(BM_UNLOCKS_STRING);
         chatCommandManager.unregisterCommand(BM_COUNT_STRING);
@@ -257,9 +309,23 @@ public class AnotherBronzemanModePlugin extends Plugin
         }
 
         clientToolbar.removeNavigation(navButton);
+        SwingUtilities.invokeLater(() ->
+        {
+            log.debug("Icon cache: {} hits, {} misses, {} evictions",
+                    itemIconCache.getHits(), itemIconCache.getMisses(), itemIconCache.getEvictions());
+            itemIconCache.clear();
+        });
 
         clientThread.invoke(() ->
         {
+            if (chatRefreshPending)
+            {
+                chatRefreshPending = false;
+                client.refreshChat();
+            }
+            log.debug("Avoided {} chat refreshes", chatRefreshesAvoided);
+            chatRefreshesAvoided = 0;
+
             // Cleanup is not required after having played on a seasonal world.
             if (client.getGameState() == GameState.LOGGED_IN && !onSeasonalWorld)
             {
@@ -274,12 +340,18 @@ public class AnotherBronzemanModePlugin extends Plugin
     {
         if (e.getGameState() == GameState.LOGGING_IN) {
             LOGGING_IN = true; // Set when logging in
+            loginStartTime = System.currentTimeMillis();
+            preloadUnlockHistory();
         }
         if (e.getGameState() == GameState.LOGGED_IN && LOGGING_IN)
         {
             LOGGING_IN = false; // Makes sure this only happens when having just logged in; not when the state changed from 'LOADING'.
-            setupUnlockHistory();
-            loadPlayerUnlocks();
+            // Only load now if the preload did not start, or started for a different profile.
+            if (!unlocksRequested || !Objects.equals(profileKey, configManager.getRSProfileKey()))
+            {
+                setupUnlockHistory();
+                loadPlayerUnlocks();
+            }
             loadResources();
             onSeasonalWorld = isSeasonalWorld(client.getWorld());
 
@@ -306,6 +378,26 @@ public class AnotherBronzemanModePlugin extends Plugin
         if (e.getGameState() == GameState.LOGIN_SCREEN)
         {
             itemEntries = null;
+            unlocksRequested = false;
+            unlockCandidates.clear();
+            unlockPersistence.flush(); // Blocks until every unlock is written
+            itemMetadataCache.save();
+            log.debug("Skipped {} of {} item container slots", itemContainerTracker.getSkippedSlots(), itemContainerTracker.getCheckedSlots());
+        }
+        if (e.getGameState() == GameState.LOGIN_SCREEN || e.getGameState() == GameState.HOPPING)
+        {
+            itemContainerTracker.clear();
+        }
+    }
+
+    /** Starts loading the unlocks as soon as the profile of the account that is logging in is known **/
+    @Subscribe
+    public void onAccountHashChanged(AccountHashChanged e)
+    {
+        if (LOGGING_IN)
+        {
+            // Give the config manager the chance to switch profiles first.
+            clientThread.invokeLater(this::preloadUnlockHistory);
         }
     }
 
@@ -323,9 +415,46 @@ public class AnotherBronzemanModePlugin extends Plugin
     @Subscribe
     public void onItemContainerChanged(ItemContainerChanged e)
     {
-        if (OWNED_INVENTORY_IDS.contains(e.getContainerId()))
+        if (!OWNED_INVENTORY_IDS.contains(e.getContainerId()))
+        {
+            return;
+        }
+
+        // Only items that were not in the container before can be new unlocks.
+        // They are checked on the next game tick, or once the unlocks are loaded.
+        addUnlockCandidates(itemContainerTracker.diff(e.getContainerId(), e.getItemContainer().getItems()));
+    }
+
+    /** Checks the unlock candidates of all containers that changed during this tick at once **/
+    @Subscribe
+    public void onGameTick(GameTick e)
+    {
+        if (unlocksLoaded)
+        {
+            processUnlockCandidates();
+        }
+    }
+
+    /** Writes pending unlocks and item metadata before the client exits, as plugins are not shut down then **/
+    @Subscribe
+    public void onClientShutdown(ClientShutdown event)
+    {
+        Future<?> flushed = unlockPersistence.flushAsync();
+        if (flushed != null)
         {
-            unlockItemContainerItems(e.getItemContainer());
+            event.waitFor(flushed);
+        }
+        event.waitFor(itemMetadataCache.save());
+    }
+
+    /** Refreshes the chat once for every message edited since the last client tick **/
+    @Subscribe
+    public void onClientTick(ClientTick e)
+    {
+        if (chatRefreshPending)
+        {
+            chatRefreshPending = false;
+            client.refreshChat();
         }
     }
 
@@ -372,7 +501,7 @@ public class AnotherBronzemanModePlugin extends Plugin
             case CLAN_CHAT:
             case CLAN_GUEST_CHAT:
             case FRIENDSCHAT:
-                if (isChatPlayerOnNormalWorld(name) && isChatPlayerBronzeman(name))
+                if (isChatPlayerBronzeman(name))
                 {
                     addBronzemanIconToMessage(chatMessage);
                 }
@@ -414,80 +543,103 @@ public class AnotherBronzemanModePlugin extends Plugin
         }
     }
 
-    public void unlockFilter(boolean showUntradeableItems, SortOption sortOption, String search)
+    /** Filters the unlocks, in the chosen sort order, on a worker pool, then redraws the panel with the result. **/
+    public void unlockFilter(boolean showUntradeableItems, SortOption sortOption, String search, Set<ItemFacet> facets)
     {
-        List<ItemObject> filteredItems = new ArrayList<ItemObject>();
-
-        for (Integer itemID : unlockedItems) {
-            ItemComposition composition = client.getItemDefinition(itemID);
-
-            boolean tradeable = composition.isTradeable();
-            if (!showUntradeableItems && !tradeable) continue;
-
-            String itemName = composition.getMembersName();
-            if (!search.isEmpty() && !itemName.toLowerCase().contains(search)) continue;
+        if (unlockedItems == null || !unlocksIndexed)
+        {
+            return;
+        }
 
-            AsyncBufferedImage icon = itemManager.getImage(itemID);
+        panel.displayFacetCounts(itemFacets.count(unlockedItems, facets));
 
-            ItemObject item = new ItemObject(itemID, itemName, tradeable, icon);
-            filteredItems.add(item);
+        // Switching back to a recent filter is served from the cache.
+        final UnlockQueryCache.Key key = new UnlockQueryCache.Key(showUntradeableItems, sortOption,
+                UnlockSearchIndex.normalize(search), EnumSet.copyOf(facets));
+        List<ItemObject> cachedItems = queryCache.get(key);
+        if (cachedItems != null)
+        {
+            unlockFilter.cancel(); // A filter still in flight would replace the cached items
+            panel.displayItems(cachedItems);
+            return;
         }
 
-        if (sortOption.name() == "NEW_TO_OLD")
+        // Snapshot everything the filter needs while on the client thread, so the worker never touches the client.
+        int[] itemIds = sortOption.itemIds(unlockedItems, nameOrder); // Already sorted, no need to sort again
+        final BitSet facetItems = itemFacets.intersect(facets);
+        if (facetItems != null)
+        {
+            itemIds = Arrays.stream(itemIds).filter(facetItems::get).toArray();
+        }
+        String[] names = new String[itemIds.length];
+        String[] lowerNames = new String[itemIds.length];
+        boolean[] tradeable = new boolean[itemIds.length];
+        for (int i = 0; i < itemIds.length; i++)
         {
-            Collections.reverse(filteredItems);
+            names[i] = itemMetadata.getName(itemIds[i]);
+            lowerNames[i] = searchIndex.getLowerName(itemIds[i]);
+            tradeable[i] = itemMetadata.isTradeable(itemIds[i]);
         }
 
-        if (sortOption.name() == "ALPHABETICAL_ASC")
+        final UnlockSearchIndex.Query query = searchIndex.parse(search);
+        final int version = queryCache.getVersion();
+        UnlockFilter.Request request = new UnlockFilter.Request(itemIds, names, lowerNames, tradeable,
+                showUntradeableItems, query);
+        unlockFilter.submit(request, filteredItems ->
         {
-            Collections.sort(filteredItems,new Comparator<ItemObject>() {
-                @Override
-                public int compare(ItemObject i1, ItemObject i2) {
-                    return i1.getName().compareToIgnoreCase(i2.getName());
-                }
-            });
+            panel.displayItems(filteredItems); // Redraw the panel
+            clientThread.invokeLater(() -> queryCache.put(key, version, query, filteredItems));
+        });
+    }
+
+    /** Collects the ids of items that might not be unlocked yet **/
+    private void addUnlockCandidates(Item[] items)
+    {
+        if (unlocksLoadFailed)
+        {
+            return;
         }
 
-        if (sortOption.name() == "ALPHABETICAL_DESC")
+        for (Item i : items)
         {
-            Collections.sort(filteredItems,new Comparator<ItemObject>() {
-                @Override
-                public int compare(ItemObject i1, ItemObject i2) {
-                    return i2.getName().compareToIgnoreCase(i1.getName());
-                }
-            });
+            if (i.getId() <= 1) continue;
+            if (i.getQuantity() <= 0) continue;
+            unlockCandidates.add(i.getId());
         }
+    }
 
-        panel.displayItems(filteredItems); // Redraw the panel
+    /** Collects the ids of the items in a container that might not be unlocked yet **/
+    private void addUnlockCandidates(ItemContainer itemContainer)
+    {
+        if (itemContainer != null)
+        {
+            addUnlockCandidates(itemContainer.getItems());
+        }
     }
 
-    /** Unlocks all items in the given item container. **/
-    public void unlockItemContainerItems(ItemContainer itemContainer)
+    /** Unlocks all collected candidates that are not unlocked yet, in a single batch **/
+    private void processUnlockCandidates()
     {
-        for (Item i : itemContainer.getItems())
+        if (unlockCandidates.isEmpty())
         {
-            int itemId = i.getId();
-            int realItemId = itemManager.canonicalize(itemId);
-            ItemComposition itemComposition = itemManager.getItemComposition(itemId);
-            int noteId = itemComposition.getNote();
-            boolean tradeable = itemComposition.isTradeable();
-            if (itemId != realItemId && noteId != 799) continue;  // The 799 signifies that it is a noted item
-            if (i.getId() <= 1) continue;
-            if (i.getQuantity() <= 0) continue;
+            return;
+        }
+
+        int[] candidates = unlockCandidates.toArray();
+        int[] newItemIds = new int[candidates.length];
+        int newItems = 0;
+        for (int itemId : candidates)
+        {
+            int realItemId = itemMetadata.getCanonicalId(itemId);
+            if (itemId != realItemId && !itemMetadata.isNoted(itemId)) continue;
             if (!unlockedItems.contains(realItemId))
             {
-                queueItemUnlock(realItemId);
-				if (config.hideUntradeables() && !tradeable) continue;
-                if (config.sendNotification())
-                {
-                    notifier.notify("You have unlocked a new item: " + client.getItemDefinition(realItemId).getMembersName() + ".");
-                }
-                else if (config.sendChatMessage())
-                {
-                    sendChatMessage("You have unlocked a new item: " + client.getItemDefinition(realItemId).getMembersName() + ".");
-                }
+                newItemIds[newItems++] = realItemId;
             }
         }
+        unlockCandidates.clear();
+
+        unlockItems(Arrays.copyOf(newItemIds, newItems));
     }
 
     public String getSavedVersionString()
@@ -506,30 +658,166 @@ public class AnotherBronzemanModePlugin extends Plugin
         return currentVersion;
     }
 
-    /** Queues a new unlock to be properly displayed **/
-    public void queueItemUnlock(int itemId)
+    /**
+     * Unlocks a batch of canonical item ids in one step: the new unlocks are written to disk together, the panel
+     * is redrawn once and they are announced together.
+     */
+    public void unlockItems(int[] itemIds)
+    {
+        List<ItemObject> newUnlocks = new ArrayList<>();
+        for (int itemId : itemIds)
+        {
+            if (!unlockedItems.add(itemId)) continue;
+
+            String itemName = itemMetadata.getName(itemId);
+            ItemObject item = new ItemObject(itemId, itemName, itemMetadata.isTradeable(itemId));
+            searchIndex.add(itemId, itemName);
+            nameOrder.add(itemId, itemName);
+            itemFacets.index(itemId);
+            queryCache.unlocked(item, itemFacets.facetsOf(itemId));
+            newUnlocks.add(item);
+        }
+
+        if (newUnlocks.isEmpty())
+        {
+            return;
+        }
+
+        final int[] newItemIds = newUnlocks.stream().mapToInt(ItemObject::getId).toArray();
+        unlockPersistence.unlockAll(newItemIds);
+        SwingUtilities.invokeLater(() ->
+        {
+            // New unlocks show at the top of the panel
+            for (int itemId : newItemIds)
+            {
+                itemIconCache.prefetch(itemId);
+            }
+        });
+        panel.invalidateItems(); // Redraw the panel once it settles
+        announceUnlocks(newUnlocks);
+    }
+
+    /** Shows the pop-ups of new unlocks and sends a single notification or chat message for all of them **/
+    private void announceUnlocks(List<ItemObject> newUnlocks)
+    {
+        List<ItemObject> announced = new ArrayList<>();
+        for (ItemObject item : newUnlocks)
+        {
+            if (config.hideUntradeables() && !item.isTradeable()) continue;
+            announced.add(item);
+        }
+
+        if (announced.isEmpty())
+        {
+            return;
+        }
+
+        // The names go along with the pop-ups, so the overlay never has to look them up while rendering
+        AnotherBronzemanModeOverlay.addItemUnlocks(announced);
+
+        if (!config.sendNotification() && !config.sendChatMessage())
+        {
+            return;
+        }
+
+        for (ItemObject item : announced)
+        {
+            digestNames.add(item.getName());
+        }
+
+        if (digestOpen)
+        {
+            return; // Sent with the digest when the window closes
+        }
+
+        // A lone unlock is announced right away, anything following it within the window is collected into a digest
+        digestOpen = true;
+        if (digestNames.size() == 1)
+        {
+            sendUnlockDigest();
+        }
+        executor.schedule(() -> clientThread.invoke(this::closeUnlockDigest), config.digestWindow(), TimeUnit.MILLISECONDS);
+    }
+
+    private void closeUnlockDigest()
+    {
+        digestOpen = false;
+        sendUnlockDigest();
+    }
+
+    /** Sends a single notification or chat message for all collected unlocks **/
+    private void sendUnlockDigest()
     {
-        unlockedItems.add(itemId);
+        if (digestNames.isEmpty())
+        {
+            return;
+        }
 
-        panel.displayItems(new ArrayList<ItemObject>()); // Redraw the panel
+        String message;
+        if (digestNames.size() == 1)
+        {
+            message = "You have unlocked a new item: " + digestNames.get(0) + ".";
+        }
+        else
+        {
+            int listed = Math.min(digestNames.size(), config.digestNames());
+            message = "You have unlocked " + digestNames.size() + " new items";
+            if (listed > 0)
+            {
+                message += ": " + String.join(", ", digestNames.subList(0, listed));
+            }
+            message += digestNames.size() > listed ? " and " + (digestNames.size() - listed) + " more." : ".";
+        }
+        digestNames.clear();
 
-		boolean tradeable = itemManager.getItemComposition(itemId).isTradeable();
-		if (!(config.hideUntradeables() && !tradeable)) AnotherBronzemanModeOverlay.addItemUnlock(itemId);
-        savePlayerUnlocks();// Save after every item to fail-safe logging out
+        if (config.sendNotification())
+        {
+            notifier.notify(message);
+        }
+        else if (config.sendChatMessage())
+        {
+            sendChatMessage(message);
+        }
     }
 
     /** Queues the removal of an unlocked item **/
     public void queueItemDelete(int itemId)
     {
-        unlockedItems.remove(Integer.valueOf(itemId));
-        savePlayerUnlocks(); // Save after every item to fail-safe logging out
+        if (unlockedItems.remove(itemId))
+        {
+            unlockPersistence.relock(itemId);
+            searchIndex.remove(itemId);
+            nameOrder.remove(itemId);
+            queryCache.relocked(itemId);
+            // The item may still be in a container, so it has to be unlocked again when that container changes.
+            itemContainerTracker.clear();
+            panel.invalidateItems();
+        }
     }
 
-    /** Unlocks default items like a bond to a newly made profile **/
+    /** Indexes an unlocked item again after a game update changed its metadata **/
+    private void onItemMetadataChanged(int itemId)
+    {
+        if (unlockedItems == null || !unlockedItems.contains(itemId))
+        {
+            return;
+        }
+
+        String itemName = itemMetadata.getName(itemId);
+        searchIndex.remove(itemId);
+        searchIndex.add(itemId, itemName);
+        nameOrder.remove(itemId);
+        nameOrder.add(itemId, itemName);
+        itemFacets.index(itemId);
+        queryCache.clear();
+        panel.invalidateItems();
+    }
+
+    /** Adds default items like a bond to the candidates of a newly made profile **/
     private void unlockDefaultItems()
     {
-        queueItemUnlock(ItemID.COINS_995);
-        queueItemUnlock(ItemID.OLD_SCHOOL_BOND);
+        unlockCandidates.add(ItemID.COINS_995);
+        unlockCandidates.add(ItemID.OLD_SCHOOL_BOND);
     }
 
     public void sendChatMessage(String chatMessage)
@@ -575,51 +863,123 @@ public class AnotherBronzemanModePlugin extends Plugin
             return;
         }
 
-        for (int i = 0; i < children.length; i+= 3) {
-            if (!unlockedItems.contains(children[i + 2].getItemId()))
-            {
-                children[i].setHidden(true);
-                children[i + 1].setOpacity(70);
-                children[i + 2].setOpacity(70);
-            }
-        }
+        GrandExchangeSearch.apply(children, unlockedItems, config.unlockedFirstInSearch());
     }
 
-    /* Saves players unlock JSON to a .txt file every time they unlock a new item */
-    private void savePlayerUnlocks()
+    /** Starts loading the unlocks early, if the profile of the account that is logging in is already known **/
+    private void preloadUnlockHistory()
     {
-        try
-        {
-            PrintWriter w = new PrintWriter(profileFile);
-            String json = GSON.toJson(unlockedItems);
-            w.println(json);
-            w.close();
-        }
-        catch (Exception e)
+        String rsProfileKey = configManager.getRSProfileKey();
+        if (!LOGGING_IN || rsProfileKey == null || (unlocksRequested && rsProfileKey.equals(profileKey)))
         {
-            e.printStackTrace();
+            return;
         }
+
+        setupUnlockHistory();
+        loadPlayerUnlocks();
     }
 
-    /* Loads a players unlock JSON every time they login */
+    /* Loads a players unlocks on the persistence thread every time they login */
     private void loadPlayerUnlocks()
     {
-        unlockedItems.clear();
-        try
+        final int generation = ++unlocksLoadGeneration;
+        unlocksRequested = true;
+        unlockPersistence.open(profileFolder, legacyFolder, result -> clientThread.invokeLater(() ->
         {
-            String json = new Scanner(profileFile).useDelimiter("\\Z").next();
-            unlockedItems.addAll(GSON.fromJson(json, new TypeToken<List<Integer>>(){}.getType()));
-            panel.displayItems(new ArrayList<ItemObject>()); // Redraw the panel
-        }
-        catch (Exception e)
+            // Skip loads that were superseded by a later login, or finished after shutting down.
+            if (generation != unlocksLoadGeneration || unlockedItems == null)
+            {
+                return;
+            }
+
+            if (result.isFailed())
+            {
+                unlocksLoadFailed = true;
+                unlockCandidates.clear();
+                sendChatMessage("Unable to load your unlocks, nothing will be unlocked until this is resolved: "
+                        + result.getError().getMessage());
+                // The files are left untouched, and a backup is imported from the JSON file once there is no snapshot.
+                sendChatMessage("To restore a backup made with " + BM_BACKUP_STRING + ", copy it to "
+                        + new File(profileFolder, UnlockJournal.JSON_FILE_NAME) + " and delete "
+                        + UnlockJournal.SNAPSHOT_FILE_NAME + " and " + UnlockJournal.JOURNAL_FILE_NAME + ".");
+                return;
+            }
+
+            unlockedItems = result.getUnlockedItems();
+            unlocksLoaded = true;
+            clientThread.invokeLater(indexUnlocks(generation, unlockedItems.toArray()));
+
+            if (result.isCreated())
+            {
+                unlockDefaultItems();
+            }
+
+            // Unlock the container changes that happened while loading, all in one batch.
+            addUnlockCandidates(client.getItemContainer(InventoryID.INVENTORY));
+            addUnlockCandidates(client.getItemContainer(InventoryID.EQUIPMENT));
+            processUnlockCandidates();
+
+            if (loginStartTime != 0)
+            {
+                log.debug("Unlocks ready {}ms after logging in", System.currentTimeMillis() - loginStartTime);
+                loginStartTime = 0;
+            }
+        }));
+    }
+
+    /**
+     * Adds the loaded unlocks to the search index, name order and facets, a few at a time on every client tick.
+     * Unlocks made in the meantime are indexed as they happen, and relocked items are skipped.
+     */
+    private BooleanSupplier indexUnlocks(int generation, int[] itemIds)
+    {
+        return new BooleanSupplier()
         {
-            e.printStackTrace();
-        }
+            private int next;
+
+            @Override
+            public boolean getAsBoolean()
+            {
+                // Stop indexing unlocks that were replaced by a later login, or after shutting down.
+                if (generation != unlocksLoadGeneration || unlockedItems == null)
+                {
+                    return true;
+                }
+
+                long deadline = System.nanoTime() + INDEX_BUDGET_NANOS;
+                while (next < itemIds.length && System.nanoTime() < deadline)
+                {
+                    int itemId = itemIds[next++];
+                    if (unlockedItems.contains(itemId))
+                    {
+                        String itemName = itemMetadata.getName(itemId);
+                        searchIndex.add(itemId, itemName);
+                        nameOrder.add(itemId, itemName);
+                        itemFacets.index(itemId);
+                    }
+                }
+
+                if (next < itemIds.length)
+                {
+                    return false;
+                }
+
+                unlocksIndexed = true;
+                queryCache.clear();
+                panel.invalidateItems(); // Redraw the panel once it settles
+                return true;
+            }
+        };
     }
 
     private void updateNamesBronzeman()
     {
-        namesBronzeman = Text.fromCSV(config.namesBronzeman());
+        Set<String> names = new HashSet<>();
+        for (String name : Text.fromCSV(config.namesBronzeman()))
+        {
+            names.add(normalizeName(name));
+        }
+        namesBronzeman = names;
     }
 
     private void updateScreenshotUnlock()
@@ -648,7 +1008,20 @@ public class AnotherBronzemanModePlugin extends Plugin
         final MessageNode messageNode = chatMessage.getMessageNode();
         messageNode.setName(getNameWithIcon(bronzemanIconOffset, name));
 
-        client.refreshChat();
+        requestChatRefresh();
+    }
+
+    /**
+     * Marks the chat to be refreshed on the next client tick, so editing several messages in the same tick only
+     * rebuilds the chatbox once.
+     */
+    private void requestChatRefresh()
+    {
+        if (chatRefreshPending)
+        {
+            chatRefreshesAvoided++;
+        }
+        chatRefreshPending = true;
     }
 
     /**
@@ -665,8 +1038,31 @@ public class AnotherBronzemanModePlugin extends Plugin
             return false;
         }
 
-        World world = worlds.findWorld(worldNumber);
-        return world != null && world.getTypes().contains(WorldType.SEASONAL);
+        if (worlds != seasonalWorldsSource)
+        {
+            // The world service hands out a new result whenever it fetches the world list.
+            updateSeasonalWorlds(worlds);
+        }
+
+        return worldNumber >= 0 && worldNumber < seasonalWorlds.length && seasonalWorlds[worldNumber];
+    }
+
+    private void updateSeasonalWorlds(WorldResult worlds)
+    {
+        int maxWorldNumber = 0;
+        for (World world : worlds.getWorlds())
+        {
+            maxWorldNumber = Math.max(maxWorldNumber, world.getId());
+        }
+
+        boolean[] seasonal = new boolean[maxWorldNumber + 1];
+        for (World world : worlds.getWorlds())
+        {
+            seasonal[world.getId()] = world.getTypes().contains(WorldType.SEASONAL);
+        }
+
+        seasonalWorlds = seasonal;
+        seasonalWorldsSource = worlds;
     }
 
     /**
@@ -797,13 +1193,22 @@ public class AnotherBronzemanModePlugin extends Plugin
 
     /**
      * Checks if a player name is a friend or friends chat member is a bronzeman.
+     * The configured names are checked first, so players that are not listed never need a lookup.
      *
      * @param name name of player to check.
      * @return boolean true/false.
      */
     private boolean isChatPlayerBronzeman(String name)
     {
-        return isChatPlayerOnNormalWorld(name) && (namesBronzeman.contains(name) || namesBronzeman.contains(name.replace('\u00A0', ' ')));
+        return namesBronzeman.contains(normalizeName(name)) && isChatPlayerOnNormalWorld(name);
+    }
+
+    /**
+     * Chat names use non-breaking spaces where the configured names use regular ones.
+     */
+    private static String normalizeName(String name)
+    {
+        return name.replace('\u00A0', ' ');
     }
 
     /**
@@ -826,11 +1231,18 @@ public class AnotherBronzemanModePlugin extends Plugin
     }
 
     /**
-     * Sets up the profileFile variable, and makes the player file if needed.
+     * Sets up the profile folders to load the unlocks from.
      */
     private void setupUnlockHistory()
     {
         profileKey = configManager.getRSProfileKey();
+        unlockedItems.clear();
+        searchIndex.clear();
+        nameOrder.clear();
+        queryCache.clear();
+        unlocksLoaded = false;
+        unlocksIndexed = false;
+        unlocksLoadFailed = false;
 
         // If profiles are not being used yet, we continue to use the legacy system.
         if (profileKey == null)
@@ -845,56 +1257,14 @@ public class AnotherBronzemanModePlugin extends Plugin
 
     private void setupLegacyFile()
     {
+        legacyFolder = null;
         profileFolder = new File(RuneLite.RUNELITE_DIR, "profiles/" + client.getUsername());
-        if (!profileFolder.exists())
-        {
-            profileFolder.mkdirs();
-        }
-
-        profileFile = new File(profileFolder, "another-bronzeman-mode-unlocks.txt");
-        if (!profileFile.exists())
-        {
-            try {
-                profileFile.createNewFile();
-                unlockDefaultItems();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-        }
     }
 
     private void setupProfileFile()
     {
         legacyFolder = new File(RuneLite.RUNELITE_DIR, "profiles/" + client.getUsername());
-        legacyFile = new File(legacyFolder, "another-bronzeman-mode-unlocks.txt");
-
         profileFolder = new File(RuneLite.RUNELITE_DIR, "profiles/" + profileKey);
-        if (!profileFolder.exists())
-        {
-            profileFolder.mkdirs();
-        }
-        profileFile = new File(profileFolder, "another-bronzeman-mode-unlocks.txt");
-        if (!profileFile.exists())
-        {
-            if (legacyFile.exists())
-            {
-                try {
-                    Files.copy(legacyFile.toPath(), profileFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-                } catch (IOException e) {
-                    e.printStackTrace();
-                    return;
-                }
-            }
-            else
-            {
-                try {
-                    profileFile.createNewFile();
-                    unlockDefaultItems();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
-        }
     }
 
     private void OnUnlocksCountCommand(ChatMessage chatMessage, String message)
@@ -916,7 +1286,7 @@ public class AnotherBronzemanModePlugin extends Plugin
 
         MessageNode messageNode = chatMessage.getMessageNode();
         messageNode.setRuneLiteFormatMessage(response);
-        client.refreshChat();
+        requestChatRefresh();
     }
 
     private void OnUnlocksResetCommand(ChatMessage chatMessage, String message)
@@ -931,13 +1301,18 @@ public class AnotherBronzemanModePlugin extends Plugin
 
     private void resetItemUnlocks(){
         try {
-            profileFile.delete();
+            unlockPersistence.reset();
             unlockedItems.clear();
-            panel.displayItems(new ArrayList<ItemObject>()); // Redraw the panel
-            savePlayerUnlocks();
+            searchIndex.clear();
+            nameOrder.clear();
+            queryCache.clear();
+            // Items that are still in a container have to be unlocked again when that container changes.
+            itemContainerTracker.clear();
+            panel.invalidateItems(); // Redraw the panel once it settles
             unlockDefaultItems();
-            unlockItemContainerItems(client.getItemContainer(InventoryID.INVENTORY));
-            unlockItemContainerItems(client.getItemContainer(InventoryID.EQUIPMENT));
+            addUnlockCandidates(client.getItemContainer(InventoryID.INVENTORY));
+            addUnlockCandidates(client.getItemContainer(InventoryID.EQUIPMENT));
+            processUnlockCandidates();
         } catch (Exception e) {
             e.printStackTrace();
             return;
@@ -951,21 +1326,14 @@ public class AnotherBronzemanModePlugin extends Plugin
             return;
         }
         backupItemUnlocks();
-        sendChatMessage("Successfully backed up file!");
     }
 
     private void backupItemUnlocks()
     {
-        Path originalPath = profileFile.toPath();
-        try {
-            Calendar cal = Calendar.getInstance();
-            SimpleDateFormat sdf = new SimpleDateFormat("MM_WW_HH_mm_ss");
-            Files.copy(originalPath, Paths.get(profileFolder.getPath() + "_" + sdf.format(cal.getTime()) + ".backup"),
-                    StandardCopyOption.REPLACE_EXISTING);
-        } catch (IOException e) {
-            e.printStackTrace();
-            return;
-        }
+        Calendar cal = Calendar.getInstance();
+        SimpleDateFormat sdf = new SimpleDateFormat("MM_WW_HH_mm_ss");
+        File backupFile = new File(profileFolder.getPath() + "_" + sdf.format(cal.getTime()) + ".backup");
+        unlockPersistence.backup(backupFile, () -> clientThread.invokeLater(() -> sendChatMessage("Successfully backed up file!")));
     }
 
     /**
@@ -0,0 +1,106 @@
+package codepanter.anotherbronzemanmode;
+
+import net.runelite.api.widgets.Widget;
+
+import java.util.BitSet;
+
+/**
+ * Greys out the locked items in the Grand Exchange search results, and optionally lists the unlocked items first.
+ * The results are rebuilt on every keystroke, so a row is only changed if it is not already shown the way it should
+ * be.
+ */
+public class GrandExchangeSearch
+{
+    // Every result is a background, a name and an item icon.
+    private static final int ROW_SIZE = 3;
+    private static final int LOCKED_OPACITY = 70;
+
+    private GrandExchangeSearch()
+    {
+    }
+
+    /**
+     * Applies the lock state of every result to its widgets.
+     *
+     * @param children the dynamic children of the search results, three per result.
+     * @param unlockedFirst whether to move the unlocked results above the locked ones.
+     */
+    public static void apply(Widget[] children, UnlockedItems unlockedItems, boolean unlockedFirst)
+    {
+        int rows = children.length / ROW_SIZE;
+        BitSet lockedRows = new BitSet(rows);
+        for (int row = 0; row < rows; row++)
+        {
+            if (!unlockedItems.contains(children[row * ROW_SIZE + 2].getItemId()))
+            {
+                lockedRows.set(row);
+                lockRow(children, row * ROW_SIZE);
+            }
+        }
+
+        if (unlockedFirst)
+        {
+            moveUnlockedFirst(children, rows, lockedRows);
+        }
+    }
+
+    private static void lockRow(Widget[] children, int index)
+    {
+        Widget background = children[index];
+        if (!background.isHidden())
+        {
+            background.setHidden(true);
+        }
+
+        for (int i = index + 1; i < index + ROW_SIZE; i++)
+        {
+            if (children[i].getOpacity() != LOCKED_OPACITY)
+            {
+                children[i].setOpacity(LOCKED_OPACITY);
+            }
+        }
+    }
+
+    /**
+     * Moves the results so the unlocked ones take the first positions, keeping the order within both groups.
+     */
+    private static void moveUnlockedFirst(Widget[] children, int rows, BitSet lockedRows)
+    {
+        // The position of every result is the position of its first widget.
+        int[] rowX = new int[rows];
+        int[] rowY = new int[rows];
+        for (int row = 0; row < rows; row++)
+        {
+            rowX[row] = children[row * ROW_SIZE].getOriginalX();
+            rowY[row] = children[row * ROW_SIZE].getOriginalY();
+        }
+
+        int position = 0;
+        for (int row = lockedRows.nextClearBit(0); row < rows; row = lockedRows.nextClearBit(row + 1))
+        {
+            moveRow(children, row, rowX, rowY, position++);
+        }
+        for (int row = lockedRows.nextSetBit(0); row >= 0 && row < rows; row = lockedRows.nextSetBit(row + 1))
+        {
+            moveRow(children, row, rowX, rowY, position++);
+        }
+    }
+
+    private static void moveRow(Widget[] children, int row, int[] rowX, int[] rowY, int position)
+    {
+        if (row == position)
+        {
+            return;
+        }
+
+        int dx = rowX[position] - rowX[row];
+        int dy = rowY[position] - rowY[row];
+        for (int i = row * ROW_SIZE; i < (row + 1) * ROW_SIZE; i++)
+        {
+            Widget widget = children[i];
+            widget.setOriginalX(widget.getOriginalX() + dx);
+            widget.setOriginalY(widget.getOriginalY() + dy);
+            widget.revalidate();
+        }
+    }
+}
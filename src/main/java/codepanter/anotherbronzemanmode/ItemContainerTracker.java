@@ -0,0 +1,87 @@
+package codepanter.anotherbronzemanmode;
+
+import lombok.Getter;
+import net.runelite.api.Item;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Remembers the item ids last seen in every owned item container, so only items that newly appear in a container
+ * have to go through the unlock check.
+ */
+public class ItemContainerTracker
+{
+    private static final Item[] NO_ITEMS = new Item[0];
+
+    private final Map<Integer, int[]> lastSeenIds = new HashMap<>();
+    private final BitSet previousIds = new BitSet();
+
+    @Getter
+    private long checkedSlots;
+
+    @Getter
+    private long skippedSlots;
+
+    /**
+     * Stores the new contents of a container.
+     *
+     * @return the items whose id was not in the container when it was last seen.
+     */
+    public Item[] diff(int containerId, Item[] items)
+    {
+        int[] previous = lastSeenIds.get(containerId);
+        int[] current = new int[items.length];
+        for (int slot = 0; slot < items.length; slot++)
+        {
+            current[slot] = items[slot].getId();
+        }
+        lastSeenIds.put(containerId, current);
+
+        checkedSlots += items.length;
+        if (previous == null)
+        {
+            return items;
+        }
+
+        for (int itemId : previous)
+        {
+            if (itemId >= 0)
+            {
+                previousIds.set(itemId);
+            }
+        }
+
+        Item[] newItems = NO_ITEMS;
+        int count = 0;
+        for (int slot = 0; slot < items.length; slot++)
+        {
+            int itemId = current[slot];
+            // Most slots are unchanged, so compare against the same slot before falling back to the whole container.
+            if ((slot < previous.length && previous[slot] == itemId) || (itemId >= 0 && previousIds.get(itemId)))
+            {
+                skippedSlots++;
+                continue;
+            }
+
+            if (count == newItems.length)
+            {
+                newItems = Arrays.copyOf(newItems, Math.max(8, count * 2));
+            }
+            newItems[count++] = items[slot];
+        }
+
+        previousIds.clear();
+        return Arrays.copyOf(newItems, count);
+    }
+
+    /**
+     * Forgets every container, so their next change is checked in full.
+     */
+    public void clear()
+    {
+        lastSeenIds.clear();
+    }
+}
@@ -0,0 +1,91 @@
+package codepanter.anotherbronzemanmode;
+
+import net.runelite.api.EquipmentInventorySlot;
+
+import java.util.function.BiPredicate;
+
+/**
+ * A property unlocks can be filtered on. Facets of the same group exclude each other, so at most one facet per group
+ * is selected at a time.
+ */
+public enum ItemFacet {
+    MEMBERS(Group.MEMBERSHIP, "Members", (items, itemId) -> items.isMembers(itemId)),
+    FREE_TO_PLAY(Group.MEMBERSHIP, "Free-to-play", (items, itemId) -> !items.isMembers(itemId)),
+
+    HEAD(EquipmentInventorySlot.HEAD, "Head"),
+    CAPE(EquipmentInventorySlot.CAPE, "Cape"),
+    AMULET(EquipmentInventorySlot.AMULET, "Neck"),
+    AMMO(EquipmentInventorySlot.AMMO, "Ammunition"),
+    WEAPON(EquipmentInventorySlot.WEAPON, "Weapon"),
+    BODY(EquipmentInventorySlot.BODY, "Body"),
+    SHIELD(EquipmentInventorySlot.SHIELD, "Shield"),
+    LEGS(EquipmentInventorySlot.LEGS, "Legs"),
+    GLOVES(EquipmentInventorySlot.GLOVES, "Hands"),
+    BOOTS(EquipmentInventorySlot.BOOTS, "Feet"),
+    RING(EquipmentInventorySlot.RING, "Ring"),
+
+    STACKABLE(Group.STACKING, "Stackable", (items, itemId) -> items.isStackable(itemId)),
+    NOT_STACKABLE(Group.STACKING, "Not stackable", (items, itemId) -> !items.isStackable(itemId)),
+
+    NOTEABLE(Group.NOTING, "Noteable", (items, itemId) -> items.isNoteable(itemId)),
+    NOT_NOTEABLE(Group.NOTING, "Not noteable", (items, itemId) -> !items.isNoteable(itemId)),
+
+    VALUE_UNDER_1K(Group.VALUE, "Under 1K", 0, 1_000),
+    VALUE_1K_TO_100K(Group.VALUE, "1K - 100K", 1_000, 100_000),
+    VALUE_100K_TO_1M(Group.VALUE, "100K - 1M", 100_000, 1_000_000),
+    VALUE_OVER_1M(Group.VALUE, "Over 1M", 1_000_000, Integer.MAX_VALUE);
+
+    public enum Group {
+        MEMBERSHIP("Any membership"),
+        SLOT("Any slot"),
+        STACKING("Any stacking"),
+        NOTING("Any noting"),
+        VALUE("Any store value");
+
+        Group(String anyName) {
+            this.anyName = anyName;
+        }
+
+        private final String anyName;
+
+        /**
+         * @return the name of the choice that selects no facet of this group.
+         */
+        public String getAnyName() {
+            return anyName;
+        }
+    }
+
+    ItemFacet(Group group, String displayName, BiPredicate<ItemMetadataTable, Integer> predicate) {
+        this.group = group;
+        this.displayName = displayName;
+        this.predicate = predicate;
+    }
+
+    ItemFacet(EquipmentInventorySlot slot, String displayName) {
+        this(Group.SLOT, displayName, (items, itemId) -> items.getEquipmentSlot(itemId) == slot.getSlotIdx());
+    }
+
+    ItemFacet(Group group, String displayName, int minValue, int maxValue) {
+        this(group, displayName, (items, itemId) -> {
+            int value = items.getValue(itemId);
+            return value >= minValue && value < maxValue;
+        });
+    }
+
+    private final Group group;
+    private final String displayName;
+    private final BiPredicate<ItemMetadataTable, Integer> predicate;
+
+    public Group getGroup() {
+        return group;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public boolean test(ItemMetadataTable items, int itemId) {
+        return predicate.test(items, itemId);
+    }
+}
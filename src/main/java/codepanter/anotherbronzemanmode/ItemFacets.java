@@ -0,0 +1,120 @@
+package codepanter.anotherbronzemanmode;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Holds a bitset of item ids for every {@link ItemFacet}, filled in from the {@link ItemMetadataTable} as items are
+ * unlocked. Filtering on facets is then an AND of bitsets, and counting the unlocks of a facet a popcount, without
+ * going through the unlocks one by one.
+ *
+ * Only indexed items are in the bitsets, so they must only be combined with the unlocks.
+ * Must only be used on the client thread.
+ */
+@Singleton
+public class ItemFacets
+{
+    @Inject
+    private ItemMetadataTable itemMetadata;
+
+    private final Map<ItemFacet, BitSet> facetItems = new EnumMap<>(ItemFacet.class);
+
+    public ItemFacets()
+    {
+        for (ItemFacet facet : ItemFacet.values())
+        {
+            facetItems.put(facet, new BitSet());
+        }
+    }
+
+    /**
+     * Adds an item to the bitsets of its facets, or moves it if its metadata changed since it was indexed.
+     */
+    public void index(int itemId)
+    {
+        for (Map.Entry<ItemFacet, BitSet> entry : facetItems.entrySet())
+        {
+            entry.getValue().set(itemId, entry.getKey().test(itemMetadata, itemId));
+        }
+    }
+
+    /**
+     * @return the facets of an item, which must be indexed.
+     */
+    public Set<ItemFacet> facetsOf(int itemId)
+    {
+        Set<ItemFacet> facets = EnumSet.noneOf(ItemFacet.class);
+        for (Map.Entry<ItemFacet, BitSet> entry : facetItems.entrySet())
+        {
+            if (entry.getValue().get(itemId))
+            {
+                facets.add(entry.getKey());
+            }
+        }
+        return facets;
+    }
+
+    /**
+     * @return the items that have every given facet, or null if no facets are given.
+     */
+    public BitSet intersect(Set<ItemFacet> facets)
+    {
+        if (facets.isEmpty())
+        {
+            return null;
+        }
+
+        BitSet items = null;
+        for (ItemFacet facet : facets)
+        {
+            if (items == null)
+            {
+                items = (BitSet) facetItems.get(facet).clone();
+            }
+            else
+            {
+                items.and(facetItems.get(facet));
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Counts the unlocks of every facet, within the facets selected in the other groups, so every count is the
+     * number of items that choosing that facet would show.
+     *
+     * @return the counts.
+     */
+    public Map<ItemFacet, Integer> count(UnlockedItems unlockedItems, Set<ItemFacet> selected)
+    {
+        Map<ItemFacet, Integer> counts = new EnumMap<>(ItemFacet.class);
+        Map<ItemFacet.Group, BitSet> groupUnlocks = new EnumMap<>(ItemFacet.Group.class);
+        for (ItemFacet.Group group : ItemFacet.Group.values())
+        {
+            BitSet unlocks = unlockedItems.toBitSet();
+            for (ItemFacet facet : selected)
+            {
+                if (facet.getGroup() != group)
+                {
+                    unlocks.and(facetItems.get(facet));
+                }
+            }
+            groupUnlocks.put(group, unlocks);
+        }
+
+        BitSet items = new BitSet();
+        for (ItemFacet facet : ItemFacet.values())
+        {
+            items.clear();
+            items.or(groupUnlocks.get(facet.getGroup()));
+            items.and(facetItems.get(facet));
+            counts.put(facet, items.cardinality());
+        }
+        return counts;
+    }
+}
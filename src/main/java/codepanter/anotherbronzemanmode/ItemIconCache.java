@@ -0,0 +1,157 @@
+package codepanter.anotherbronzemanmode;
+
+import lombok.Getter;
+import net.runelite.client.game.ItemManager;
+import net.runelite.client.util.AsyncBufferedImage;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caches item icons for the side panel in a single atlas image.
+ * The atlas has a fixed number of slots, which bounds the memory used no matter how many items are unlocked. Slots
+ * are handed out in least recently used order, so the icons of the rows in view stay cached while scrolling.
+ *
+ * Must only be used on the event dispatch thread.
+ */
+@Singleton
+public class ItemIconCache
+{
+    private static final int ICON_WIDTH = 36;
+    private static final int ICON_HEIGHT = 32;
+    private static final int ATLAS_COLUMNS = 32;
+    private static final int ATLAS_ROWS = 16;
+    private static final int CAPACITY = ATLAS_COLUMNS * ATLAS_ROWS; // About 2.3 MB of icons
+
+    @Inject
+    private ItemManager itemManager;
+
+    // Atlas slot of every cached item id, least recently drawn first.
+    private final LinkedHashMap<Integer, Integer> slots = new LinkedHashMap<>(CAPACITY, 0.75f, true);
+    private final int[] slotItemIds = new int[CAPACITY];
+    private final BitSet loadedSlots = new BitSet(CAPACITY);
+    private BufferedImage atlas;
+
+    private Runnable loadListener = () -> {};
+
+    @Getter
+    private long hits;
+
+    @Getter
+    private long misses;
+
+    @Getter
+    private long evictions;
+
+    /**
+     * Sets the callback that is run whenever an icon has finished loading into the atlas.
+     */
+    public void setLoadListener(Runnable loadListener)
+    {
+        this.loadListener = loadListener;
+    }
+
+    /**
+     * Draws the icon of an item centered in the given area, requesting it if it is not cached yet.
+     *
+     * @return true if the icon was drawn, false if it is still loading.
+     */
+    public boolean draw(Graphics g, int itemId, int x, int y, int width, int height)
+    {
+        Integer slot = slots.get(itemId);
+        if (slot == null)
+        {
+            misses++;
+            request(itemId);
+            return false;
+        }
+
+        hits++;
+        if (!loadedSlots.get(slot))
+        {
+            return false;
+        }
+
+        int sx = (slot % ATLAS_COLUMNS) * ICON_WIDTH;
+        int sy = (slot / ATLAS_COLUMNS) * ICON_HEIGHT;
+        int dx = x + (width - ICON_WIDTH) / 2;
+        int dy = y + (height - ICON_HEIGHT) / 2;
+        g.drawImage(atlas, dx, dy, dx + ICON_WIDTH, dy + ICON_HEIGHT, sx, sy, sx + ICON_WIDTH, sy + ICON_HEIGHT, null);
+        return true;
+    }
+
+    /**
+     * Starts loading the icon of an item if it is not cached yet, without counting it as a hit or miss.
+     */
+    public void prefetch(int itemId)
+    {
+        if (!slots.containsKey(itemId))
+        {
+            request(itemId);
+        }
+    }
+
+    /**
+     * Drops every icon and the atlas itself.
+     */
+    public void clear()
+    {
+        slots.clear();
+        loadedSlots.clear();
+        atlas = null;
+    }
+
+    private void request(int itemId)
+    {
+        if (atlas == null)
+        {
+            atlas = new BufferedImage(ATLAS_COLUMNS * ICON_WIDTH, ATLAS_ROWS * ICON_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        }
+
+        final int slot;
+        if (slots.size() < CAPACITY)
+        {
+            slot = slots.size();
+        }
+        else
+        {
+            Iterator<Map.Entry<Integer, Integer>> eldest = slots.entrySet().iterator();
+            slot = eldest.next().getValue();
+            eldest.remove();
+            evictions++;
+        }
+
+        slots.put(itemId, slot);
+        slotItemIds[slot] = itemId;
+        loadedSlots.clear(slot);
+
+        final AsyncBufferedImage image = itemManager.getImage(itemId);
+        image.onLoaded(() -> SwingUtilities.invokeLater(() -> store(itemId, slot, image)));
+    }
+
+    private void store(int itemId, int slot, BufferedImage image)
+    {
+        // The slot may have been given to another item, or the cache cleared, while the icon was loading.
+        if (atlas == null || slotItemIds[slot] != itemId || !slots.containsKey(itemId))
+        {
+            return;
+        }
+
+        int x = (slot % ATLAS_COLUMNS) * ICON_WIDTH;
+        int y = (slot / ATLAS_COLUMNS) * ICON_HEIGHT;
+        Graphics2D g = atlas.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.drawImage(image, x, y, ICON_WIDTH, ICON_HEIGHT, null);
+        g.dispose();
+
+        loadedSlots.set(slot);
+        loadListener.run();
+    }
+}
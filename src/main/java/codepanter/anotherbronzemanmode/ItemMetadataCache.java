@@ -0,0 +1,295 @@
+package codepanter.anotherbronzemanmode;
+
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.Client;
+import net.runelite.client.RuneLite;
+import net.runelite.client.callback.ClientThread;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+
+/**
+ * Stores the items resolved in the {@link ItemMetadataTable} on disk between client restarts.
+ * The file is tagged with the client revision it was written by, and is only loaded by that revision. As game updates
+ * can change items without changing the revision, every loaded item is verified against the game cache again in the
+ * background, within a small time budget per client tick, and the listener is told about every item that changed.
+ */
+@Slf4j
+@Singleton
+public class ItemMetadataCache
+{
+    private static final File CACHE_FILE = new File(RuneLite.RUNELITE_DIR, "another-bronzeman-mode/item-metadata.dat");
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    private static final int MAGIC = 0x41424D49; // "ABMI"
+    private static final byte VERSION = 2;
+    private static final int HEADER_SIZE = 9;
+    private static final int RECORD_SIZE = 18;
+    private static final long VERIFY_BUDGET_NANOS = 1_000_000;
+
+    @Inject
+    private Client client;
+
+    @Inject
+    private ClientThread clientThread;
+
+    @Inject
+    private ItemMetadataTable itemMetadata;
+
+    @Inject
+    private ScheduledExecutorService executor;
+
+    private volatile boolean running;
+
+    private IntConsumer changeListener = itemId -> {};
+
+    /**
+     * Sets the callback that is run on the client thread for every loaded item whose metadata turned out to have
+     * changed.
+     */
+    public void setChangeListener(IntConsumer changeListener)
+    {
+        this.changeListener = changeListener;
+    }
+
+    /**
+     * Loads the cache file, unless it is missing or from another revision, and starts verifying its items.
+     */
+    public void startUp()
+    {
+        running = true;
+        clientThread.invoke(() ->
+        {
+            final int revision = client.getRevision();
+            executor.execute(() ->
+            {
+                ItemMetadataTable.Snapshot snapshot = null;
+                try
+                {
+                    snapshot = read(revision);
+                }
+                catch (IOException e)
+                {
+                    log.warn("Unable to read item metadata cache", e);
+                }
+
+                if (snapshot == null)
+                {
+                    // Items are resolved as they are needed, and written on shutdown.
+                    return;
+                }
+
+                final ItemMetadataTable.Snapshot loaded = snapshot;
+                clientThread.invokeLater(() ->
+                {
+                    itemMetadata.restore(loaded);
+                    clientThread.invokeLater(verify());
+                });
+            });
+        });
+    }
+
+    public void shutDown()
+    {
+        running = false;
+        save();
+    }
+
+    /**
+     * Writes the cache file in the background if items were resolved since it was last written.
+     *
+     * @return a future that completes once the file is written, or nothing had to be written.
+     */
+    public Future<?> save()
+    {
+        final CompletableFuture<Void> saved = new CompletableFuture<>();
+        clientThread.invoke(() ->
+        {
+            if (!itemMetadata.isDirty())
+            {
+                saved.complete(null);
+                return;
+            }
+
+            final int revision = client.getRevision();
+            final ItemMetadataTable.Snapshot snapshot = itemMetadata.snapshot();
+            executor.execute(() ->
+            {
+                try
+                {
+                    write(revision, snapshot);
+                }
+                finally
+                {
+                    saved.complete(null);
+                }
+            });
+        });
+        return saved;
+    }
+
+    private BooleanSupplier verify()
+    {
+        return new BooleanSupplier()
+        {
+            private int nextItemId;
+
+            @Override
+            public boolean getAsBoolean()
+            {
+                if (!running)
+                {
+                    return true;
+                }
+
+                long deadline = System.nanoTime() + VERIFY_BUDGET_NANOS;
+                while (System.nanoTime() < deadline)
+                {
+                    int itemId = itemMetadata.nextUnverified(nextItemId);
+                    if (itemId == -1)
+                    {
+                        // Write the items that changed, and the ones resolved in the meantime.
+                        save();
+                        return true;
+                    }
+
+                    if (itemMetadata.verify(itemId))
+                    {
+                        changeListener.accept(itemId);
+                    }
+                    nextItemId = itemId + 1;
+                }
+                return false;
+            }
+        };
+    }
+
+    private static ItemMetadataTable.Snapshot read(int revision) throws IOException
+    {
+        if (!CACHE_FILE.exists())
+        {
+            return null;
+        }
+
+        // Read into the heap rather than mapped, as a mapping keeps the file locked on Windows until it is collected,
+        // which makes replacing the file fail.
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(CACHE_FILE.toPath()));
+        if (buffer.remaining() < HEADER_SIZE
+                || buffer.getInt() != MAGIC || buffer.get() != VERSION || buffer.getInt() != revision)
+        {
+            return null;
+        }
+
+        try
+        {
+            return readEntries(buffer);
+        }
+        catch (BufferUnderflowException e)
+        {
+            throw new IOException("Item metadata cache is truncated", e);
+        }
+    }
+
+    private static ItemMetadataTable.Snapshot readEntries(ByteBuffer buffer) throws IOException
+    {
+        int count = buffer.getInt();
+        int[] itemIds = new int[count];
+        byte[] flags = new byte[count];
+        int[] canonicalIds = new int[count];
+        int[] nameIndices = new int[count];
+        byte[] equipmentSlots = new byte[count];
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++)
+        {
+            itemIds[i] = buffer.getInt();
+            if (itemIds[i] < 0)
+            {
+                throw new IOException("Item metadata cache contains an invalid item id");
+            }
+            flags[i] = buffer.get();
+            canonicalIds[i] = buffer.getInt();
+            nameIndices[i] = buffer.getInt();
+            equipmentSlots[i] = buffer.get();
+            values[i] = buffer.getInt();
+        }
+
+        String[] names = new String[buffer.getInt()];
+        for (int i = 0; i < names.length; i++)
+        {
+            byte[] name = new byte[buffer.getShort() & 0xFFFF];
+            buffer.get(name);
+            names[i] = new String(name, StandardCharsets.UTF_8);
+        }
+
+        for (int nameIndex : nameIndices)
+        {
+            if (nameIndex < 0 || nameIndex >= names.length)
+            {
+                throw new IOException("Item metadata cache contains an unknown name");
+            }
+        }
+
+        return new ItemMetadataTable.Snapshot(itemIds, flags, canonicalIds, nameIndices, equipmentSlots, values, names);
+    }
+
+    private static void write(int revision, ItemMetadataTable.Snapshot snapshot)
+    {
+        byte[][] names = new byte[snapshot.getNames().length][];
+        int size = HEADER_SIZE + 8 + snapshot.getItemIds().length * RECORD_SIZE;
+        for (int i = 0; i < names.length; i++)
+        {
+            names[i] = snapshot.getNames()[i].getBytes(StandardCharsets.UTF_8);
+            size += 2 + names[i].length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+        buffer.putInt(revision);
+        buffer.putInt(snapshot.getItemIds().length);
+        for (int i = 0; i < snapshot.getItemIds().length; i++)
+        {
+            buffer.putInt(snapshot.getItemIds()[i]);
+            buffer.put(snapshot.getFlags()[i]);
+            buffer.putInt(snapshot.getCanonicalIds()[i]);
+            buffer.putInt(snapshot.getNameIndices()[i]);
+            buffer.put(snapshot.getEquipmentSlots()[i]);
+            buffer.putInt(snapshot.getValues()[i]);
+        }
+        buffer.putInt(names.length);
+        for (byte[] name : names)
+        {
+            buffer.putShort((short) name.length);
+            buffer.put(name);
+        }
+
+        try
+        {
+            CACHE_FILE.getParentFile().mkdirs();
+            File tempFile = new File(CACHE_FILE.getPath() + TEMP_FILE_SUFFIX);
+            try (OutputStream out = Files.newOutputStream(tempFile.toPath()))
+            {
+                out.write(Arrays.copyOf(buffer.array(), buffer.position()));
+            }
+            Files.move(tempFile.toPath(), CACHE_FILE.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException e)
+        {
+            log.warn("Unable to write item metadata cache", e);
+        }
+    }
+}
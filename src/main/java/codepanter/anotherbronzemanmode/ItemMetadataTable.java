@@ -0,0 +1,319 @@
+package codepanter.anotherbronzemanmode;
+
+import lombok.Value;
+import net.runelite.api.ItemComposition;
+import net.runelite.client.game.ItemManager;
+import net.runelite.client.game.ItemStats;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Caches the item metadata the plugin needs, indexed by item id.
+ * Every item is resolved through the {@link ItemManager} the first time it is touched, after which its metadata is
+ * read from parallel primitive arrays. Names are interned, as noted and placeholder variants share their name.
+ *
+ * Items restored from disk are used as they are until they are verified against the game cache, which may have
+ * changed since they were stored.
+ *
+ * Items are resolved on the client thread.
+ */
+@Singleton
+public class ItemMetadataTable
+{
+    private static final int NOTED_TEMPLATE = 799; // The note template id of noted items
+
+    private static final byte RESOLVED = 1;
+    private static final byte NOTED = 1 << 1;
+    private static final byte TRADEABLE = 1 << 2;
+    private static final byte MEMBERS = 1 << 3;
+    private static final byte STACKABLE = 1 << 4;
+    private static final byte NOTEABLE = 1 << 5;
+    // Set once the item is resolved during this session, never stored.
+    private static final byte VERIFIED = 1 << 6;
+
+    @Inject
+    private ItemManager itemManager;
+
+    private byte[] flags = new byte[0];
+    private int[] canonicalIds = new int[0];
+    private int[] nameIndices = new int[0];
+    // Equipment slot plus one, so 0 means the item cannot be equipped.
+    private byte[] equipmentSlots = new byte[0];
+    private int[] values = new int[0];
+
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> nameLookup = new HashMap<>();
+
+    // Whether items were resolved since the last snapshot.
+    private boolean dirty;
+
+    /**
+     * A copy of every resolved item, for storing the table on disk.
+     */
+    @Value
+    public static class Snapshot
+    {
+        int[] itemIds;
+        byte[] flags;
+        int[] canonicalIds;
+        int[] nameIndices;
+        byte[] equipmentSlots;
+        int[] values;
+        String[] names;
+    }
+
+    public int getCanonicalId(int itemId)
+    {
+        resolve(itemId);
+        return canonicalIds[itemId];
+    }
+
+    public boolean isNoted(int itemId)
+    {
+        resolve(itemId);
+        return (flags[itemId] & NOTED) != 0;
+    }
+
+    public boolean isTradeable(int itemId)
+    {
+        resolve(itemId);
+        return (flags[itemId] & TRADEABLE) != 0;
+    }
+
+    public String getName(int itemId)
+    {
+        resolve(itemId);
+        return names.get(nameIndices[itemId]);
+    }
+
+    public boolean isMembers(int itemId)
+    {
+        resolve(itemId);
+        return (flags[itemId] & MEMBERS) != 0;
+    }
+
+    public boolean isStackable(int itemId)
+    {
+        resolve(itemId);
+        return (flags[itemId] & STACKABLE) != 0;
+    }
+
+    /**
+     * @return true if the item can be turned into a bank note.
+     */
+    public boolean isNoteable(int itemId)
+    {
+        resolve(itemId);
+        return (flags[itemId] & NOTEABLE) != 0;
+    }
+
+    /**
+     * @return the equipment slot of the item, or -1 if it cannot be equipped.
+     */
+    public int getEquipmentSlot(int itemId)
+    {
+        resolve(itemId);
+        return equipmentSlots[itemId] - 1;
+    }
+
+    /**
+     * @return the store value of the item.
+     */
+    public int getValue(int itemId)
+    {
+        resolve(itemId);
+        return values[itemId];
+    }
+
+    /**
+     * @return the first item id from the given one that was restored from disk but not verified yet, or -1.
+     */
+    public int nextUnverified(int fromItemId)
+    {
+        for (int itemId = fromItemId; itemId < flags.length; itemId++)
+        {
+            if (flags[itemId] != 0 && (flags[itemId] & VERIFIED) == 0)
+            {
+                return itemId;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Resolves an item restored from disk again, in case the game cache changed since it was stored.
+     *
+     * @return true if its metadata changed.
+     */
+    public boolean verify(int itemId)
+    {
+        if (itemId >= flags.length || flags[itemId] == 0 || (flags[itemId] & VERIFIED) != 0)
+        {
+            return false;
+        }
+
+        byte storedFlags = flags[itemId];
+        int storedCanonicalId = canonicalIds[itemId];
+        int storedNameIndex = nameIndices[itemId];
+        byte storedEquipmentSlot = equipmentSlots[itemId];
+        int storedValue = values[itemId];
+        boolean wasDirty = dirty;
+
+        flags[itemId] = 0;
+        resolve(itemId);
+
+        boolean changed = (flags[itemId] & ~VERIFIED) != storedFlags
+                || canonicalIds[itemId] != storedCanonicalId
+                || nameIndices[itemId] != storedNameIndex
+                || equipmentSlots[itemId] != storedEquipmentSlot
+                || values[itemId] != storedValue;
+        // Only changes have to be written back.
+        dirty = changed || wasDirty;
+        return changed;
+    }
+
+    public boolean isDirty()
+    {
+        return dirty;
+    }
+
+    public Snapshot snapshot()
+    {
+        int count = 0;
+        for (byte itemFlags : flags)
+        {
+            if (itemFlags != 0)
+            {
+                count++;
+            }
+        }
+
+        int[] snapshotIds = new int[count];
+        byte[] snapshotFlags = new byte[count];
+        int[] snapshotCanonicalIds = new int[count];
+        int[] snapshotNameIndices = new int[count];
+        byte[] snapshotEquipmentSlots = new byte[count];
+        int[] snapshotValues = new int[count];
+        int n = 0;
+        for (int itemId = 0; itemId < flags.length; itemId++)
+        {
+            if (flags[itemId] != 0)
+            {
+                snapshotIds[n] = itemId;
+                snapshotFlags[n] = (byte) (flags[itemId] & ~VERIFIED);
+                snapshotCanonicalIds[n] = canonicalIds[itemId];
+                snapshotNameIndices[n] = nameIndices[itemId];
+                snapshotEquipmentSlots[n] = equipmentSlots[itemId];
+                snapshotValues[n] = values[itemId];
+                n++;
+            }
+        }
+
+        dirty = false;
+        return new Snapshot(snapshotIds, snapshotFlags, snapshotCanonicalIds, snapshotNameIndices,
+                snapshotEquipmentSlots, snapshotValues, names.toArray(new String[0]));
+    }
+
+    /**
+     * Fills in every item of the snapshot that was not resolved yet.
+     */
+    public void restore(Snapshot snapshot)
+    {
+        int[] itemIds = snapshot.getItemIds();
+        for (int i = 0; i < itemIds.length; i++)
+        {
+            int itemId = itemIds[i];
+            if (itemId < flags.length && flags[itemId] != 0)
+            {
+                continue;
+            }
+
+            ensureCapacity(itemId);
+            canonicalIds[itemId] = snapshot.getCanonicalIds()[i];
+            nameIndices[itemId] = intern(snapshot.getNames()[snapshot.getNameIndices()[i]]);
+            equipmentSlots[itemId] = snapshot.getEquipmentSlots()[i];
+            values[itemId] = snapshot.getValues()[i];
+            flags[itemId] = (byte) (snapshot.getFlags()[i] & ~VERIFIED);
+        }
+    }
+
+    private void ensureCapacity(int itemId)
+    {
+        if (itemId >= flags.length)
+        {
+            int length = Math.max(itemId + 1, flags.length * 2);
+            flags = Arrays.copyOf(flags, length);
+            canonicalIds = Arrays.copyOf(canonicalIds, length);
+            nameIndices = Arrays.copyOf(nameIndices, length);
+            equipmentSlots = Arrays.copyOf(equipmentSlots, length);
+            values = Arrays.copyOf(values, length);
+        }
+    }
+
+    private void resolve(int itemId)
+    {
+        if (itemId < flags.length && flags[itemId] != 0)
+        {
+            return;
+        }
+
+        ensureCapacity(itemId);
+
+        ItemComposition itemComposition = itemManager.getItemComposition(itemId);
+        byte itemFlags = RESOLVED | VERIFIED;
+        if (itemComposition.getNote() == NOTED_TEMPLATE)
+        {
+            itemFlags |= NOTED;
+        }
+        if (itemComposition.isTradeable())
+        {
+            itemFlags |= TRADEABLE;
+        }
+        if (itemComposition.isMembers())
+        {
+            itemFlags |= MEMBERS;
+        }
+        if (itemComposition.isStackable())
+        {
+            itemFlags |= STACKABLE;
+        }
+        if (itemComposition.getNote() != NOTED_TEMPLATE && itemComposition.getLinkedNoteId() != -1)
+        {
+            itemFlags |= NOTEABLE;
+        }
+
+        ItemStats itemStats = itemManager.getItemStats(itemId);
+        if (itemStats != null && itemStats.isEquipable() && itemStats.getEquipment() != null)
+        {
+            equipmentSlots[itemId] = (byte) (itemStats.getEquipment().getSlot() + 1);
+        }
+        else
+        {
+            equipmentSlots[itemId] = 0;
+        }
+
+        canonicalIds[itemId] = itemManager.canonicalize(itemId);
+        nameIndices[itemId] = intern(itemComposition.getMembersName());
+        values[itemId] = itemComposition.getPrice();
+        flags[itemId] = itemFlags;
+        dirty = true;
+    }
+
+    private int intern(String name)
+    {
+        Integer index = nameLookup.get(name);
+        if (index == null)
+        {
+            index = names.size();
+            names.add(name);
+            nameLookup.put(name, index);
+        }
+        return index;
+    }
+}
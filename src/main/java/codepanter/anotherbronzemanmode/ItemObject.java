@@ -1,6 +1,5 @@
 package codepanter.anotherbronzemanmode;
 import lombok.Value;
-import net.runelite.client.util.AsyncBufferedImage;
 
 @Value
 public class ItemObject
@@ -8,5 +7,4 @@ public class ItemObject
     int id;
     String name;
     boolean tradeable;
-    AsyncBufferedImage icon;
 }
@@ -1,18 +1,60 @@
 package codepanter.anotherbronzemanmode;
 
 public enum SortOption {
-    NEW_TO_OLD("New to Old"),
-    OLD_TO_NEW("Old to New"),
-    ALPHABETICAL_ASC("Alphabetical A-Z"),
-    ALPHABETICAL_DESC("Alphabetical Z-A");
+    NEW_TO_OLD("New to Old",
+            (unlockedItems, nameOrder) -> unlockedItems.toArrayNewestFirst(),
+            (newestName, otherName) -> -1),
+    OLD_TO_NEW("Old to New",
+            (unlockedItems, nameOrder) -> unlockedItems.toArray(),
+            (newestName, otherName) -> 1),
+    ALPHABETICAL_ASC("Alphabetical A-Z",
+            (unlockedItems, nameOrder) -> nameOrder.ascending(),
+            (newestName, otherName) -> {
+                int compare = String.CASE_INSENSITIVE_ORDER.compare(newestName, otherName);
+                return compare != 0 ? compare : 1;
+            }),
+    ALPHABETICAL_DESC("Alphabetical Z-A",
+            (unlockedItems, nameOrder) -> nameOrder.descending(),
+            (newestName, otherName) -> {
+                int compare = String.CASE_INSENSITIVE_ORDER.compare(otherName, newestName);
+                return compare != 0 ? compare : -1;
+            });
 
-    SortOption(String displayName) {
+    /**
+     * Lists the unlocked items in the order of a sort option, by walking one of the orders kept up to date as
+     * items are unlocked.
+     */
+    public interface Order {
+        int[] itemIds(UnlockedItems unlockedItems, UnlockNameOrder nameOrder);
+    }
+
+    /**
+     * Compares a new unlock to an older one, to find where it goes in a list that is already sorted.
+     * Never returns 0, as the new unlock has to go either before or after the other.
+     */
+    public interface Placement {
+        int compare(String newestName, String otherName);
+    }
+
+    SortOption(String displayName, Order order, Placement placement) {
         this.displayName = displayName;
+        this.order = order;
+        this.placement = placement;
     }
 
     private final String displayName;
+    private final Order order;
+    private final Placement placement;
 
     public String getDisplayName() {
         return displayName;
     }
+
+    public int[] itemIds(UnlockedItems unlockedItems, UnlockNameOrder nameOrder) {
+        return order.itemIds(unlockedItems, nameOrder);
+    }
+
+    public int compareNewest(String newestName, String otherName) {
+        return placement.compare(newestName, otherName);
+    }
 }
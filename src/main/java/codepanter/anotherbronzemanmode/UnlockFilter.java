@@ -0,0 +1,170 @@
+package codepanter.anotherbronzemanmode;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Filters the unlocks for the side panel on a worker pool, and orders search results by how well they match.
+ * Every request works on an immutable snapshot of the unlocks taken on the client thread. Submitting a request
+ * cancels the one in flight, and large snapshots are split into partitions that are filtered in parallel.
+ */
+@Slf4j
+@Singleton
+public class UnlockFilter
+{
+    // Snapshots smaller than this are filtered in a single partition.
+    private static final int PARTITION_SIZE = 2048;
+    private static final int CANCELLATION_CHECK_INTERVAL = 256;
+
+    private final AtomicInteger generation = new AtomicInteger();
+
+    /**
+     * The unlocks to filter, already in the chosen sort order, together with the metadata needed to filter them.
+     */
+    @Value
+    public static class Request
+    {
+        int[] itemIds;
+        String[] names;
+        String[] lowerNames;
+        boolean[] tradeable;
+        boolean showUntradeableItems;
+        UnlockSearchIndex.Query query;
+    }
+
+    @Value
+    private static class Match
+    {
+        int score;
+        ItemObject item;
+    }
+
+    /**
+     * Filters the request in the background, and hands the result to the callback unless a newer
+     * request was submitted in the meantime.
+     */
+    public void submit(Request request, Consumer<List<ItemObject>> callback)
+    {
+        final int requestGeneration = generation.incrementAndGet();
+        ForkJoinPool.commonPool().execute(() ->
+        {
+            try
+            {
+                List<ItemObject> result = filter(request, requestGeneration);
+                if (generation.get() == requestGeneration)
+                {
+                    callback.accept(result);
+                }
+            }
+            catch (CancellationException e)
+            {
+                log.debug("Unlock filter superseded by a newer one");
+            }
+        });
+    }
+
+    /**
+     * Cancels the request in flight, if any, so its result is never handed to its callback.
+     */
+    public void cancel()
+    {
+        generation.incrementAndGet();
+    }
+
+    private List<ItemObject> filter(Request request, int requestGeneration)
+    {
+        List<Match> matches = new FilterTask(request, requestGeneration, 0, request.getItemIds().length).invoke();
+
+        Match[] sorted = matches.toArray(new Match[0]);
+        if (!request.getQuery().isEmpty())
+        {
+            // Better matches first, keeping the chosen sort order among equally good matches.
+            // Parallel for large arrays, and stable either way.
+            Arrays.parallelSort(sorted, Comparator.comparingInt(Match::getScore).reversed());
+            checkCancelled(requestGeneration);
+        }
+
+        List<ItemObject> result = new ArrayList<>(sorted.length);
+        for (Match match : sorted)
+        {
+            result.add(match.getItem());
+        }
+        return result;
+    }
+
+    private void checkCancelled(int requestGeneration)
+    {
+        if (generation.get() != requestGeneration)
+        {
+            throw new CancellationException();
+        }
+    }
+
+    private class FilterTask extends RecursiveTask<List<Match>>
+    {
+        private final Request request;
+        private final int requestGeneration;
+        private final int from;
+        private final int to;
+
+        FilterTask(Request request, int requestGeneration, int from, int to)
+        {
+            this.request = request;
+            this.requestGeneration = requestGeneration;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Match> compute()
+        {
+            if (to - from > PARTITION_SIZE)
+            {
+                int middle = (from + to) >>> 1;
+                FilterTask left = new FilterTask(request, requestGeneration, from, middle);
+                left.fork();
+                List<Match> right = new FilterTask(request, requestGeneration, middle, to).compute();
+                List<Match> matches = left.join();
+                matches.addAll(right);
+                return matches;
+            }
+
+            List<Match> matches = new ArrayList<>();
+            UnlockSearchIndex.Query query = request.getQuery();
+            for (int i = from; i < to; i++)
+            {
+                if ((i - from) % CANCELLATION_CHECK_INTERVAL == 0)
+                {
+                    checkCancelled(requestGeneration);
+                }
+
+                int itemId = request.getItemIds()[i];
+                boolean tradeable = request.getTradeable()[i];
+                if (!request.isShowUntradeableItems() && !tradeable) continue;
+
+                int score = 0;
+                if (!query.isEmpty())
+                {
+                    String lowerName = request.getLowerNames()[i];
+                    score = lowerName == null ? -1 : query.score(itemId, lowerName);
+                    if (score < 0) continue;
+                }
+
+                ItemObject item = new ItemObject(itemId, request.getNames()[i], tradeable);
+                matches.add(new Match(score, item));
+            }
+            return matches;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package codepanter.anotherbronzemanmode;
+
+import net.runelite.client.ui.ColorScheme;
+import net.runelite.client.ui.PluginPanel;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import java.awt.*;
+import java.awt.event.MouseEvent;
+import java.util.List;
+
+/**
+ * Grid of unlocked item icons that paints only the cells inside the visible area.
+ * Cells are not components: they are drawn straight from the item array and looked up by position for tooltips
+ * and context menus, so the cost of showing the grid does not grow with the number of unlocks.
+ */
+public class UnlockGrid extends JComponent
+{
+    private static final int COLUMN_SIZE = 5;
+    private static final int CELL_HEIGHT = 42;
+    private static final int GAP = 1;
+    private static final int PADDING = 10;
+    // Rows below the visible ones whose icons are loaded ahead of scrolling.
+    private static final int PREFETCH_ROWS = 4;
+
+    private final ItemIconCache iconCache;
+
+    private ItemObject[] items = new ItemObject[0];
+
+    public UnlockGrid(ItemIconCache iconCache)
+    {
+        this.iconCache = iconCache;
+        iconCache.setLoadListener(this::repaint);
+        setBorder(new EmptyBorder(PADDING, PADDING, PADDING, PADDING));
+        setBackground(ColorScheme.DARK_GRAY_COLOR);
+        setOpaque(true);
+        // Tooltips are looked up per cell in getToolTipText(MouseEvent).
+        ToolTipManager.sharedInstance().registerComponent(this);
+    }
+
+    /**
+     * Replaces the items shown in the grid. Must be called on the event dispatch thread.
+     */
+    public void setItems(List<ItemObject> items)
+    {
+        this.items = items.toArray(new ItemObject[0]);
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * @return the item in the cell at the given point, or null if there is none.
+     */
+    public ItemObject getItemAt(Point point)
+    {
+        Insets insets = getInsets();
+        int x = point.x - insets.left;
+        int y = point.y - insets.top;
+        int cellWidth = getCellWidth();
+        if (x < 0 || y < 0 || cellWidth <= 0)
+        {
+            return null;
+        }
+
+        int column = x / (cellWidth + GAP);
+        int row = y / (CELL_HEIGHT + GAP);
+        if (column >= COLUMN_SIZE || x % (cellWidth + GAP) >= cellWidth || y % (CELL_HEIGHT + GAP) >= CELL_HEIGHT)
+        {
+            return null;
+        }
+
+        int index = row * COLUMN_SIZE + column;
+        return index < items.length ? items[index] : null;
+    }
+
+    @Override
+    public String getToolTipText(MouseEvent event)
+    {
+        ItemObject item = getItemAt(event.getPoint());
+        return item == null ? null : item.getName();
+    }
+
+    @Override
+    public Dimension getPreferredSize()
+    {
+        Insets insets = getInsets();
+        int rows = getRowCount();
+        int height = rows * CELL_HEIGHT + Math.max(rows - 1, 0) * GAP;
+        return new Dimension(PluginPanel.PANEL_WIDTH - 2 * PADDING, insets.top + height + insets.bottom);
+    }
+
+    @Override
+    public Dimension getMaximumSize()
+    {
+        return new Dimension(Integer.MAX_VALUE, getPreferredSize().height);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g)
+    {
+        Rectangle clip = g.getClipBounds();
+        if (clip == null)
+        {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+        Insets insets = getInsets();
+        int cellWidth = getCellWidth();
+        int rows = getRowCount();
+        if (cellWidth <= 0 || rows == 0)
+        {
+            return;
+        }
+
+        // Only the rows that intersect the clip, which is the part of the grid scrolled into view.
+        int firstRow = Math.max((clip.y - insets.top) / (CELL_HEIGHT + GAP), 0);
+        int lastRow = Math.min((clip.y + clip.height - insets.top) / (CELL_HEIGHT + GAP), rows - 1);
+        for (int row = firstRow; row <= lastRow; row++)
+        {
+            int y = insets.top + row * (CELL_HEIGHT + GAP);
+            for (int column = 0; column < COLUMN_SIZE; column++)
+            {
+                int x = insets.left + column * (cellWidth + GAP);
+                g.setColor(ColorScheme.DARKER_GRAY_COLOR);
+                g.fillRect(x, y, cellWidth, CELL_HEIGHT);
+
+                int index = row * COLUMN_SIZE + column;
+                if (index < items.length)
+                {
+                    iconCache.draw(g, items[index].getId(), x, y, cellWidth, CELL_HEIGHT);
+                }
+            }
+        }
+
+        int prefetchEnd = Math.min((lastRow + 1 + PREFETCH_ROWS) * COLUMN_SIZE, items.length);
+        for (int index = (lastRow + 1) * COLUMN_SIZE; index < prefetchEnd; index++)
+        {
+            iconCache.prefetch(items[index].getId());
+        }
+    }
+
+    private int getCellWidth()
+    {
+        Insets insets = getInsets();
+        int width = getWidth() - insets.left - insets.right;
+        return (width - (COLUMN_SIZE - 1) * GAP) / COLUMN_SIZE;
+    }
+
+    private int getRowCount()
+    {
+        return (items.length + COLUMN_SIZE - 1) / COLUMN_SIZE;
+    }
+}
@@ -0,0 +1,309 @@
+package codepanter.anotherbronzemanmode;
+
+import com.google.gson.JsonParseException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import static net.runelite.http.api.RuneLiteAPI.GSON;
+
+/**
+ * Persists the unlocks of a single profile folder.
+ * The unlocks are stored as a binary snapshot, followed by an append-only journal of unlock and relock records.
+ * Changes are buffered until {@link #flush()}, which appends them to the journal in a single write; once the
+ * journal grows past a threshold it is folded back into the snapshot.
+ * Profile folders from before the snapshot existed hold a JSON file instead, which is imported on first load.
+ *
+ * This class is not thread-safe, it is only used from the persistence thread of {@link UnlockPersistence}.
+ */
+@Slf4j
+public class UnlockJournal
+{
+    static final String SNAPSHOT_FILE_NAME = "another-bronzeman-mode-unlocks.dat";
+    static final String JSON_FILE_NAME = "another-bronzeman-mode-unlocks.txt";
+    static final String JOURNAL_FILE_NAME = "another-bronzeman-mode-unlocks.journal";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    private static final int COMPACTION_THRESHOLD = 32 * 1024;
+
+    private static final byte RECORD_UNLOCK = 1;
+    private static final byte RECORD_RELOCK = 2;
+    private static final int RECORD_SIZE = 5;
+
+    private final File snapshotFile;
+    private final File jsonFile;
+    private final File journalFile;
+
+    // The unlocks as they are once every buffered record is flushed.
+    private final UnlockedItems unlockedItems = new UnlockedItems();
+    private ByteBuffer pending = ByteBuffer.allocate(RECORD_SIZE * 64);
+
+    private OutputStream journalOut;
+    private long journalSize;
+
+    public UnlockJournal(File folder)
+    {
+        this.snapshotFile = new File(folder, SNAPSHOT_FILE_NAME);
+        this.jsonFile = new File(folder, JSON_FILE_NAME);
+        this.journalFile = new File(folder, JOURNAL_FILE_NAME);
+    }
+
+    /**
+     * @return true if this folder already holds unlocks, in any form.
+     */
+    public boolean exists()
+    {
+        return snapshotFile.exists() || jsonFile.exists() || journalFile.exists();
+    }
+
+    /**
+     * Loads the snapshot, followed by every record in the journal.
+     * If there is no binary snapshot yet, the JSON file is imported and written out as one.
+     *
+     * @return the unlocked item ids, oldest unlock first.
+     * @throws IOException if the files can not be read, or the snapshot is corrupt. Nothing is written in that case,
+     *                     so the files can still be recovered.
+     */
+    public int[] load() throws IOException
+    {
+        close();
+        pending.clear();
+        unlockedItems.clear();
+        readSnapshot();
+        replay(journalFile);
+        journalSize = journalFile.length();
+
+        if (journalSize % RECORD_SIZE != 0)
+        {
+            // Drop the partial record, so new records are appended at a record boundary.
+            journalSize -= journalSize % RECORD_SIZE;
+            try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw"))
+            {
+                file.setLength(journalSize);
+            }
+        }
+
+        if (!snapshotFile.exists())
+        {
+            compact();
+        }
+
+        return unlockedItems.toArray();
+    }
+
+    public void unlock(int itemId)
+    {
+        if (unlockedItems.add(itemId))
+        {
+            buffer(RECORD_UNLOCK, itemId);
+        }
+    }
+
+    public void relock(int itemId)
+    {
+        if (unlockedItems.remove(itemId))
+        {
+            buffer(RECORD_RELOCK, itemId);
+        }
+    }
+
+    /**
+     * Appends every buffered record to the journal, and compacts the journal once it passes the threshold.
+     */
+    public void flush() throws IOException
+    {
+        if (pending.position() == 0)
+        {
+            return;
+        }
+
+        if (journalOut == null)
+        {
+            journalOut = new FileOutputStream(journalFile, true);
+        }
+
+        journalOut.write(pending.array(), 0, pending.position());
+        journalOut.flush();
+        journalSize += pending.position();
+        pending.clear();
+
+        if (journalSize >= COMPACTION_THRESHOLD)
+        {
+            compact();
+        }
+    }
+
+    /**
+     * Writes the unlocks to a JSON file, in the format used before the binary snapshot.
+     */
+    public void exportJson(File file) throws IOException
+    {
+        File tempFile = new File(file.getPath() + TEMP_FILE_SUFFIX);
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(tempFile), StandardCharsets.UTF_8))
+        {
+            w.write(GSON.toJson(unlockedItems.toArray()));
+            w.write(System.lineSeparator());
+        }
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Replaces the unlocks in this folder with a compacted copy of the unlocks in another folder.
+     */
+    public void importFrom(UnlockJournal other) throws IOException
+    {
+        reset();
+        for (int itemId : other.load())
+        {
+            unlockedItems.add(itemId);
+        }
+        other.close();
+        UnlockSnapshot.write(snapshotFile, unlockedItems.toArray());
+    }
+
+    /**
+     * Deletes all unlocks stored in this folder.
+     */
+    public void reset()
+    {
+        close();
+        pending.clear();
+        unlockedItems.clear();
+        snapshotFile.delete();
+        jsonFile.delete();
+        journalFile.delete();
+        journalSize = 0;
+    }
+
+    public void close()
+    {
+        if (journalOut == null)
+        {
+            return;
+        }
+
+        try
+        {
+            journalOut.close();
+        }
+        catch (IOException e)
+        {
+            log.warn("Unable to close unlock journal", e);
+        }
+        journalOut = null;
+    }
+
+    private void buffer(byte type, int itemId)
+    {
+        if (pending.remaining() < RECORD_SIZE)
+        {
+            ByteBuffer grown = ByteBuffer.allocate(pending.capacity() * 2);
+            pending.flip();
+            grown.put(pending);
+            pending = grown;
+        }
+        pending.put(type).putInt(itemId);
+    }
+
+    /**
+     * Folds the journal into the snapshot. The snapshot is replaced atomically before the journal is removed, so a
+     * crash in between only replays records the snapshot already contains.
+     */
+    private void compact() throws IOException
+    {
+        close();
+        UnlockSnapshot.write(snapshotFile, unlockedItems.toArray());
+        journalFile.delete();
+        journalSize = 0;
+    }
+
+    private void readSnapshot() throws IOException
+    {
+        if (snapshotFile.exists())
+        {
+            // A corrupt snapshot is left in place rather than replaced by the JSON file, which is only the state
+            // from before the snapshot was first written.
+            UnlockSnapshot.read(snapshotFile, unlockedItems);
+            return;
+        }
+
+        importJson();
+    }
+
+    private void importJson() throws IOException
+    {
+        if (!jsonFile.exists())
+        {
+            return;
+        }
+
+        String json = new String(Files.readAllBytes(jsonFile.toPath()), StandardCharsets.UTF_8).trim();
+        if (json.isEmpty())
+        {
+            return;
+        }
+
+        int[] items;
+        try
+        {
+            items = GSON.fromJson(json, int[].class);
+        }
+        catch (JsonParseException e)
+        {
+            // Older versions did not write the file atomically, so it may have been cut off.
+            throw new IOException("Unlock file " + jsonFile + " is malformed", e);
+        }
+
+        if (items == null)
+        {
+            throw new IOException("Unlock file " + jsonFile + " is malformed");
+        }
+
+        for (int itemId : items)
+        {
+            if (!UnlockedItems.isValidItemId(itemId))
+            {
+                throw new IOException("Unlock file " + jsonFile + " contains invalid item id " + itemId);
+            }
+            unlockedItems.add(itemId);
+        }
+    }
+
+    private void replay(File file) throws IOException
+    {
+        if (!file.exists())
+        {
+            return;
+        }
+
+        ByteBuffer records = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        // A trailing partial record is what is left of an append that was cut off, so it is ignored.
+        while (records.remaining() >= RECORD_SIZE)
+        {
+            int offset = records.position();
+            byte type = records.get();
+            int itemId = records.getInt();
+            if (!UnlockedItems.isValidItemId(itemId))
+            {
+                throw new IOException("Unlock journal " + file + " has invalid item id " + itemId + " at offset " + offset);
+            }
+
+            if (type == RECORD_UNLOCK)
+            {
+                unlockedItems.add(itemId);
+            }
+            else if (type == RECORD_RELOCK)
+            {
+                unlockedItems.remove(itemId);
+            }
+            else
+            {
+                throw new IOException("Unlock journal " + file + " has unknown record type " + type + " at offset " + offset);
+            }
+        }
+    }
+}
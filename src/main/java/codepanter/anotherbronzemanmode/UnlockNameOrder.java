@@ -0,0 +1,95 @@
+package codepanter.anotherbronzemanmode;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.TreeSet;
+
+/**
+ * Keeps the unlocked items sorted by name, ignoring case, so the alphabetical sort options are a walk over the tree
+ * instead of a sort. Items with the same name keep the order they were added in.
+ * The order is updated in O(log n) as items are unlocked and relocked.
+ */
+public class UnlockNameOrder
+{
+    private static final Comparator<Entry> ORDER = Comparator
+            .comparing((Entry entry) -> entry.name, String.CASE_INSENSITIVE_ORDER)
+            .thenComparingLong(entry -> entry.sequence);
+
+    private final TreeSet<Entry> entries = new TreeSet<>(ORDER);
+    private Entry[] entriesByItemId = new Entry[0];
+    private long nextSequence;
+
+    private static class Entry
+    {
+        private final int itemId;
+        private final String name;
+        private final long sequence;
+
+        Entry(int itemId, String name, long sequence)
+        {
+            this.itemId = itemId;
+            this.name = name;
+            this.sequence = sequence;
+        }
+    }
+
+    public void add(int itemId, String name)
+    {
+        if (itemId >= entriesByItemId.length)
+        {
+            entriesByItemId = Arrays.copyOf(entriesByItemId, Math.max(itemId + 1, entriesByItemId.length * 2));
+        }
+        else if (entriesByItemId[itemId] != null)
+        {
+            return;
+        }
+
+        Entry entry = new Entry(itemId, name, nextSequence++);
+        entriesByItemId[itemId] = entry;
+        entries.add(entry);
+    }
+
+    public void remove(int itemId)
+    {
+        if (itemId >= entriesByItemId.length || entriesByItemId[itemId] == null)
+        {
+            return;
+        }
+
+        entries.remove(entriesByItemId[itemId]);
+        entriesByItemId[itemId] = null;
+    }
+
+    public void clear()
+    {
+        entries.clear();
+        entriesByItemId = new Entry[0];
+    }
+
+    /**
+     * @return the item ids from A to Z.
+     */
+    public int[] ascending()
+    {
+        return toArray(entries.iterator());
+    }
+
+    /**
+     * @return the item ids from Z to A.
+     */
+    public int[] descending()
+    {
+        return toArray(entries.descendingIterator());
+    }
+
+    private int[] toArray(Iterator<Entry> iterator)
+    {
+        int[] itemIds = new int[entries.size()];
+        for (int i = 0; i < itemIds.length; i++)
+        {
+            itemIds[i] = iterator.next().itemId;
+        }
+        return itemIds;
+    }
+}
@@ -0,0 +1,295 @@
+package codepanter.anotherbronzemanmode;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Moves all unlock file I/O off the client thread.
+ * Changes are handed to a single persistence thread, which coalesces every change made within the configured save
+ * delay into one journal write. {@link #flush()} blocks until everything handed over so far is on disk.
+ */
+@Slf4j
+@Singleton
+public class UnlockPersistence
+{
+    private static final long FLUSH_TIMEOUT_SECONDS = 5;
+
+    @Inject
+    private AnotherBronzemanModeConfig config;
+
+    private ScheduledExecutorService executor;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    // Only accessed from the persistence thread.
+    private UnlockJournal journal;
+
+    /**
+     * The result of opening a profile folder.
+     */
+    @Value
+    public static class LoadResult
+    {
+        UnlockedItems unlockedItems;
+        boolean created;
+        // Null if the unlocks were loaded.
+        IOException error;
+
+        public boolean isFailed()
+        {
+            return error != null;
+        }
+    }
+
+    public void start()
+    {
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("bronzeman-persistence-%d")
+                .setDaemon(true)
+                .build());
+    }
+
+    public void stop()
+    {
+        flush();
+        executor.execute(this::closeJournal);
+        executor.shutdown();
+        try
+        {
+            executor.awaitTermination(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+        // A flush that was still scheduled is dropped with the executor, and must not block scheduling after a restart.
+        flushScheduled.set(false);
+    }
+
+    /**
+     * Switches to the unlocks in the given profile folder, creating it if needed.
+     * A new profile folder that has a legacy folder gets a copy of its unlocks.
+     *
+     * @param profileFolder folder of the profile to switch to.
+     * @param legacyFolder  legacy folder of the same account, or null.
+     * @param callback      called on the persistence thread with the loaded unlocks, or the reason they could not
+     *                      be loaded.
+     */
+    public void open(File profileFolder, File legacyFolder, Consumer<LoadResult> callback)
+    {
+        executor.execute(() ->
+        {
+            closeJournal();
+
+            if (!profileFolder.exists())
+            {
+                profileFolder.mkdirs();
+            }
+
+            journal = new UnlockJournal(profileFolder);
+            boolean created = false;
+            try
+            {
+                if (!journal.exists())
+                {
+                    UnlockJournal legacyJournal = legacyFolder == null ? null : new UnlockJournal(legacyFolder);
+                    if (legacyJournal != null && legacyJournal.exists())
+                    {
+                        journal.importFrom(legacyJournal);
+                    }
+                    else
+                    {
+                        created = true;
+                    }
+                }
+
+                UnlockedItems unlockedItems = new UnlockedItems();
+                for (int itemId : journal.load())
+                {
+                    unlockedItems.add(itemId);
+                }
+                callback.accept(new LoadResult(unlockedItems, created, null));
+            }
+            catch (IOException e)
+            {
+                failOpen(profileFolder, e, callback);
+            }
+            catch (RuntimeException e)
+            {
+                failOpen(profileFolder, new IOException("Unexpected error while reading unlocks", e), callback);
+            }
+        });
+    }
+
+    private void failOpen(File profileFolder, IOException e, Consumer<LoadResult> callback)
+    {
+        log.warn("Unable to load unlocks from {}", profileFolder, e);
+        // Nothing may be written on top of unlocks that could not be read.
+        journal.close();
+        journal = null;
+        callback.accept(new LoadResult(new UnlockedItems(), false, e));
+    }
+
+    /**
+     * Unlocks a batch of items, written to disk together with every other change made within the save delay.
+     */
+    public void unlockAll(int[] itemIds)
+    {
+        executor.execute(() ->
+        {
+            if (journal != null)
+            {
+                for (int itemId : itemIds)
+                {
+                    journal.unlock(itemId);
+                }
+            }
+        });
+        scheduleFlush();
+    }
+
+    public void relock(int itemId)
+    {
+        executor.execute(() ->
+        {
+            if (journal != null)
+            {
+                journal.relock(itemId);
+            }
+        });
+        scheduleFlush();
+    }
+
+    /**
+     * Deletes every unlock of the current profile.
+     */
+    public void reset()
+    {
+        executor.execute(() ->
+        {
+            if (journal != null)
+            {
+                journal.reset();
+            }
+        });
+    }
+
+    /**
+     * Writes the unlocks of the current profile, including every change handed over so far, to a JSON file.
+     */
+    public void backup(File file, Runnable callback)
+    {
+        executor.execute(() ->
+        {
+            if (journal == null)
+            {
+                return;
+            }
+
+            try
+            {
+                journal.exportJson(file);
+                callback.run();
+            }
+            catch (IOException e)
+            {
+                log.warn("Unable to back up unlocks to {}", file, e);
+            }
+        });
+    }
+
+    /**
+     * Writes every change handed over so far in the background, without waiting for the save delay.
+     *
+     * @return a future that completes once they are written, or null if persistence is stopped.
+     */
+    public Future<?> flushAsync()
+    {
+        if (executor == null)
+        {
+            return null;
+        }
+
+        return executor.submit(this::flushJournal);
+    }
+
+    /**
+     * Blocks until every change handed over so far has been written.
+     */
+    public void flush()
+    {
+        Future<?> flushed = flushAsync();
+        if (flushed == null)
+        {
+            return;
+        }
+
+        try
+        {
+            flushed.get(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException | TimeoutException e)
+        {
+            log.warn("Unable to flush unlocks", e);
+        }
+    }
+
+    private void scheduleFlush()
+    {
+        if (flushScheduled.compareAndSet(false, true))
+        {
+            executor.schedule(() ->
+            {
+                flushScheduled.set(false);
+                flushJournal();
+            }, config.saveDelay(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flushJournal()
+    {
+        if (journal == null)
+        {
+            return;
+        }
+
+        try
+        {
+            journal.flush();
+        }
+        catch (IOException e)
+        {
+            log.warn("Unable to write unlocks", e);
+        }
+    }
+
+    private void closeJournal()
+    {
+        if (journal == null)
+        {
+            return;
+        }
+
+        flushJournal();
+        journal.close();
+        journal = null;
+    }
+}
@@ -0,0 +1,160 @@
+package codepanter.anotherbronzemanmode;
+
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Remembers the results of the last few panel filters, so switching back to one of them does not filter again.
+ * Cached results are patched as items are unlocked and relocked instead of being dropped.
+ *
+ * Results computed in the background are tagged with the version of the unlocks they were computed from, and are
+ * not cached if the unlocks changed in the meantime, as the patches for those changes would be missing.
+ */
+public class UnlockQueryCache
+{
+    private static final int CAPACITY = 8;
+
+    @Value
+    public static class Key
+    {
+        boolean showUntradeableItems;
+        SortOption sortOption;
+        // Normalized with UnlockSearchIndex.normalize.
+        String search;
+        Set<ItemFacet> facets;
+    }
+
+    private static class Entry
+    {
+        private final UnlockSearchIndex.Query query;
+        private final ArrayList<ItemObject> items;
+
+        Entry(UnlockSearchIndex.Query query, List<ItemObject> items)
+        {
+            this.query = query;
+            this.items = new ArrayList<>(items);
+        }
+    }
+
+    // Least recently used first.
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(CAPACITY, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest)
+        {
+            return size() > CAPACITY;
+        }
+    };
+
+    private int version;
+
+    /**
+     * @return the version of the unlocks, which changes whenever an item is unlocked or relocked.
+     */
+    public int getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * @return a copy of the cached result, or null if it is not cached.
+     */
+    public List<ItemObject> get(Key key)
+    {
+        Entry entry = entries.get(key);
+        return entry == null ? null : new ArrayList<>(entry.items);
+    }
+
+    /**
+     * Caches a result, unless the unlocks changed since the given version.
+     */
+    public void put(Key key, int version, UnlockSearchIndex.Query query, List<ItemObject> items)
+    {
+        if (version == this.version)
+        {
+            entries.put(key, new Entry(query, items));
+        }
+    }
+
+    /**
+     * Inserts a new unlock into every cached result it matches, where it would have been sorted to.
+     *
+     * @param itemFacets the facets of the new unlock.
+     */
+    public void unlocked(ItemObject item, Set<ItemFacet> itemFacets)
+    {
+        version++;
+        String lowerName = item.getName().toLowerCase(Locale.ROOT);
+        for (Map.Entry<Key, Entry> cached : entries.entrySet())
+        {
+            Key key = cached.getKey();
+            Entry entry = cached.getValue();
+            if (!key.isShowUntradeableItems() && !item.isTradeable()
+                    || !itemFacets.containsAll(key.getFacets()))
+            {
+                continue;
+            }
+
+            int score = entry.query.isEmpty() ? 0 : entry.query.scoreName(lowerName);
+            if (score < 0)
+            {
+                continue;
+            }
+
+            // Results are sorted by score, then by the sort option, and the new unlock never ties with another.
+            List<ItemObject> items = entry.items;
+            int low = 0;
+            int high = items.size();
+            while (low < high)
+            {
+                int middle = (low + high) >>> 1;
+                if (compare(key.getSortOption(), entry.query, item, score, items.get(middle)) > 0)
+                {
+                    low = middle + 1;
+                }
+                else
+                {
+                    high = middle;
+                }
+            }
+            items.add(low, item);
+        }
+    }
+
+    /**
+     * Removes a relocked item from every cached result.
+     */
+    public void relocked(int itemId)
+    {
+        version++;
+        for (Entry entry : entries.values())
+        {
+            entry.items.removeIf(item -> item.getId() == itemId);
+        }
+    }
+
+    public void clear()
+    {
+        version++;
+        entries.clear();
+    }
+
+    private static int compare(SortOption sortOption, UnlockSearchIndex.Query query, ItemObject newest, int newestScore, ItemObject other)
+    {
+        if (!query.isEmpty())
+        {
+            int otherScore = query.scoreName(other.getName().toLowerCase(Locale.ROOT));
+            if (otherScore != newestScore)
+            {
+                return Integer.compare(otherScore, newestScore);
+            }
+        }
+        return sortOption.compareNewest(newest.getName(), other.getName());
+    }
+}
@@ -0,0 +1,247 @@
+package codepanter.anotherbronzemanmode;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Indexes the lowercase names of unlocked items by their trigrams, so a search only has to check the items that
+ * contain every trigram of the search terms. Terms shorter than a trigram are checked against every name.
+ * The index is updated as items are unlocked and relocked.
+ */
+public class UnlockSearchIndex
+{
+    private final Map<Long, Postings> trigrams = new HashMap<>();
+    private String[] names = new String[0];
+
+    /**
+     * A parsed search, with the items that may match it.
+     */
+    public static class Query
+    {
+        private final String[] terms;
+        // Null if no term is long enough to narrow down the candidates.
+        private final BitSet candidates;
+
+        private Query(String[] terms, BitSet candidates)
+        {
+            this.terms = terms;
+            this.candidates = candidates;
+        }
+
+        public boolean isEmpty()
+        {
+            return terms.length == 0;
+        }
+
+        /**
+         * Scores how well an item matches this search. Every term that starts the name, or a word in it, scores
+         * higher than a term that only appears somewhere inside it.
+         * Only reads state captured when parsing, so it can be called from any thread.
+         *
+         * @param lowerName lowercase name of the item.
+         * @return the score of the item, or -1 if it does not contain every term.
+         */
+        public int score(int itemId, String lowerName)
+        {
+            if (candidates != null && !candidates.get(itemId))
+            {
+                return -1;
+            }
+
+            return scoreName(lowerName);
+        }
+
+        /**
+         * Scores a name without checking the candidates, so it also works for items indexed after parsing.
+         *
+         * @param lowerName lowercase name of the item.
+         * @return the score of the name, or -1 if it does not contain every term.
+         */
+        public int scoreName(String lowerName)
+        {
+            int score = 0;
+            for (String term : terms)
+            {
+                int index = lowerName.indexOf(term);
+                if (index < 0)
+                {
+                    return -1;
+                }
+
+                if (isWordPrefix(lowerName, term, index))
+                {
+                    score += 2;
+                }
+                else
+                {
+                    score += 1;
+                }
+            }
+            return score;
+        }
+    }
+
+    /**
+     * Sorted item ids of every indexed name containing a trigram.
+     */
+    private static class Postings
+    {
+        private int[] itemIds = new int[4];
+        private int size;
+
+        void add(int itemId)
+        {
+            int index = Arrays.binarySearch(itemIds, 0, size, itemId);
+            if (index >= 0)
+            {
+                return;
+            }
+
+            index = -index - 1;
+            if (size == itemIds.length)
+            {
+                itemIds = Arrays.copyOf(itemIds, size * 2);
+            }
+            System.arraycopy(itemIds, index, itemIds, index + 1, size - index);
+            itemIds[index] = itemId;
+            size++;
+        }
+
+        void remove(int itemId)
+        {
+            int index = Arrays.binarySearch(itemIds, 0, size, itemId);
+            if (index < 0)
+            {
+                return;
+            }
+
+            System.arraycopy(itemIds, index + 1, itemIds, index, size - index - 1);
+            size--;
+        }
+    }
+
+    public void add(int itemId, String name)
+    {
+        if (itemId < names.length && names[itemId] != null)
+        {
+            return;
+        }
+
+        if (itemId >= names.length)
+        {
+            names = Arrays.copyOf(names, Math.max(itemId + 1, names.length * 2));
+        }
+
+        String lowerName = name.toLowerCase(Locale.ROOT);
+        names[itemId] = lowerName;
+        for (int i = 0; i + 3 <= lowerName.length(); i++)
+        {
+            trigrams.computeIfAbsent(trigram(lowerName, i), k -> new Postings()).add(itemId);
+        }
+    }
+
+    public void remove(int itemId)
+    {
+        if (itemId >= names.length || names[itemId] == null)
+        {
+            return;
+        }
+
+        String lowerName = names[itemId];
+        names[itemId] = null;
+        for (int i = 0; i + 3 <= lowerName.length(); i++)
+        {
+            long key = trigram(lowerName, i);
+            Postings postings = trigrams.get(key);
+            if (postings != null)
+            {
+                postings.remove(itemId);
+                if (postings.size == 0)
+                {
+                    trigrams.remove(key);
+                }
+            }
+        }
+    }
+
+    public void clear()
+    {
+        trigrams.clear();
+        names = new String[0];
+    }
+
+    /**
+     * Splits a search into lowercase terms and narrows down the items that can match all of them.
+     */
+    public Query parse(String search)
+    {
+        String normalized = normalize(search);
+        String[] terms = normalized.isEmpty() ? new String[0] : normalized.split(" ");
+
+        BitSet candidates = null;
+        for (String term : terms)
+        {
+            for (int i = 0; i + 3 <= term.length(); i++)
+            {
+                Postings postings = trigrams.get(trigram(term, i));
+                BitSet termCandidates = new BitSet();
+                if (postings != null)
+                {
+                    for (int j = 0; j < postings.size; j++)
+                    {
+                        termCandidates.set(postings.itemIds[j]);
+                    }
+                }
+
+                if (candidates == null)
+                {
+                    candidates = termCandidates;
+                }
+                else
+                {
+                    candidates.and(termCandidates);
+                }
+            }
+        }
+
+        return new Query(terms, candidates);
+    }
+
+    /**
+     * @return the search as lowercase terms separated by single spaces, so equal searches compare equal.
+     */
+    public static String normalize(String search)
+    {
+        String trimmed = search.trim().toLowerCase(Locale.ROOT);
+        return trimmed.isEmpty() ? trimmed : String.join(" ", trimmed.split("\\s+"));
+    }
+
+    /**
+     * @return the lowercase name of an indexed item, or null if it is not indexed.
+     */
+    public String getLowerName(int itemId)
+    {
+        return itemId < names.length ? names[itemId] : null;
+    }
+
+    private static boolean isWordPrefix(String name, String term, int index)
+    {
+        while (index >= 0)
+        {
+            if (index == 0 || !Character.isLetterOrDigit(name.charAt(index - 1)))
+            {
+                return true;
+            }
+            index = name.indexOf(term, index + 1);
+        }
+        return false;
+    }
+
+    private static long trigram(String s, int index)
+    {
+        return ((long) s.charAt(index) << 32) | ((long) s.charAt(index + 1) << 16) | s.charAt(index + 2);
+    }
+}
@@ -0,0 +1,146 @@
+package codepanter.anotherbronzemanmode;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Reads and writes the binary unlock snapshot.
+ *
+ * The file consists of a header (magic, format version and item count), the item ids in unlock order and a CRC32
+ * of everything before it. Each item id is stored as the zigzag encoded difference to the previous id, written as
+ * a varint, which keeps most ids at one or two bytes.
+ */
+public class UnlockSnapshot
+{
+    private static final int MAGIC = 0x41424D55; // "ABMU"
+    private static final byte VERSION = 1;
+    private static final int HEADER_SIZE = 9;
+    private static final int TRAILER_SIZE = 4;
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    private UnlockSnapshot()
+    {
+    }
+
+    /**
+     * Adds the unlocks in the snapshot to the given unlocks, skipping duplicate ids.
+     *
+     * @throws IOException if the file can not be read, or its contents are corrupt.
+     */
+    public static void read(File file, UnlockedItems unlockedItems) throws IOException
+    {
+        // Read into the heap rather than mapped, as a mapping keeps the file locked on Windows until it is collected,
+        // which makes replacing the snapshot fail.
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+
+        if (buffer.limit() < HEADER_SIZE + TRAILER_SIZE)
+        {
+            throw new IOException("Unlock snapshot " + file + " is truncated");
+        }
+
+        int checksumOffset = buffer.limit() - TRAILER_SIZE;
+        ByteBuffer contents = buffer.duplicate();
+        contents.limit(checksumOffset);
+        CRC32 crc = new CRC32();
+        crc.update(contents);
+        if ((int) crc.getValue() != buffer.getInt(checksumOffset))
+        {
+            throw new IOException("Unlock snapshot " + file + " failed its checksum");
+        }
+
+        if (buffer.getInt() != MAGIC)
+        {
+            throw new IOException("Unlock snapshot " + file + " has an unknown format");
+        }
+        byte version = buffer.get();
+        if (version != VERSION)
+        {
+            throw new IOException("Unlock snapshot " + file + " has unsupported version " + version);
+        }
+
+        int count = buffer.getInt();
+        buffer.limit(checksumOffset);
+        int itemId = 0;
+        for (int i = 0; i < count; i++)
+        {
+            itemId += readZigZagVarInt(buffer, file);
+            if (!UnlockedItems.isValidItemId(itemId))
+            {
+                throw new IOException("Unlock snapshot " + file + " has invalid item id " + itemId);
+            }
+            unlockedItems.add(itemId);
+        }
+
+        if (buffer.hasRemaining())
+        {
+            throw new IOException("Unlock snapshot " + file + " has trailing data");
+        }
+    }
+
+    /**
+     * Atomically replaces the file with a snapshot of the given unlocks.
+     */
+    public static void write(File file, int[] items) throws IOException
+    {
+        // Every id takes at most five bytes.
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + items.length * 5 + TRAILER_SIZE);
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+        buffer.putInt(items.length);
+
+        int previous = 0;
+        for (int itemId : items)
+        {
+            writeZigZagVarInt(buffer, itemId - previous);
+            previous = itemId;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+
+        File tempFile = new File(file.getPath() + TEMP_FILE_SUFFIX);
+        try (OutputStream out = Files.newOutputStream(tempFile.toPath()))
+        {
+            out.write(Arrays.copyOf(buffer.array(), buffer.position()));
+        }
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int readZigZagVarInt(ByteBuffer buffer, File file) throws IOException
+    {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7)
+        {
+            if (!buffer.hasRemaining())
+            {
+                throw new IOException("Unlock snapshot " + file + " is truncated");
+            }
+
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+            {
+                return (value >>> 1) ^ -(value & 1);
+            }
+        }
+        throw new IOException("Unlock snapshot " + file + " contains a malformed item id");
+    }
+
+    private static void writeZigZagVarInt(ByteBuffer buffer, int value)
+    {
+        int zigZag = (value << 1) ^ (value >> 31);
+        while ((zigZag & ~0x7F) != 0)
+        {
+            buffer.put((byte) ((zigZag & 0x7F) | 0x80));
+            zigZag >>>= 7;
+        }
+        buffer.put((byte) zigZag);
+    }
+}
@@ -0,0 +1,168 @@
+package codepanter.anotherbronzemanmode;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Stores the unlocked item ids of a profile.
+ * Membership is answered from a bitset keyed by item id, while the order in which items were unlocked is kept
+ * in a compact int[] log. Removed items leave a tombstone in the log, which is compacted once tombstones make up
+ * half of it, so removals are O(1) amortized.
+ */
+public class UnlockedItems
+{
+    /**
+     * The highest item id that can be stored, far above the number of items in the game.
+     */
+    public static final int MAX_ITEM_ID = (1 << 20) - 1;
+
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int TOMBSTONE = -1;
+
+    private final BitSet unlocked = new BitSet();
+
+    // Unlock order, possibly containing tombstones.
+    private int[] log = new int[INITIAL_CAPACITY];
+    private int logSize;
+
+    // Position of every unlocked item id in the log, indexed by item id.
+    private int[] logIndex = new int[0];
+
+    private int size;
+
+    public boolean contains(int itemId)
+    {
+        return itemId >= 0 && unlocked.get(itemId);
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public static boolean isValidItemId(int itemId)
+    {
+        return itemId >= 0 && itemId <= MAX_ITEM_ID;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * Adds an item to the end of the unlock order.
+     *
+     * @return true if the item was not unlocked yet, false if it was or the id is out of range.
+     */
+    public boolean add(int itemId)
+    {
+        if (!isValidItemId(itemId) || unlocked.get(itemId))
+        {
+            return false;
+        }
+
+        if (logSize == log.length)
+        {
+            log = Arrays.copyOf(log, log.length * 2);
+        }
+        if (itemId >= logIndex.length)
+        {
+            logIndex = Arrays.copyOf(logIndex, Math.max(itemId + 1, Math.min(logIndex.length * 2, MAX_ITEM_ID + 1)));
+        }
+
+        logIndex[itemId] = logSize;
+        log[logSize++] = itemId;
+        unlocked.set(itemId);
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes an item, keeping the unlock order of the remaining items.
+     *
+     * @return true if the item was unlocked.
+     */
+    public boolean remove(int itemId)
+    {
+        if (!contains(itemId))
+        {
+            return false;
+        }
+
+        log[logIndex[itemId]] = TOMBSTONE;
+        unlocked.clear(itemId);
+        size--;
+
+        if (logSize - size > logSize / 2)
+        {
+            compact();
+        }
+        return true;
+    }
+
+    public void clear()
+    {
+        // The arrays are kept, so a cleared instance can be refilled without allocating.
+        unlocked.clear();
+        logSize = 0;
+        size = 0;
+    }
+
+    /**
+     * @return a copy of the unlocked item ids as a bitset.
+     */
+    public BitSet toBitSet()
+    {
+        return (BitSet) unlocked.clone();
+    }
+
+    /**
+     * @return the unlocked item ids, oldest unlock first.
+     */
+    public int[] toArray()
+    {
+        int[] items = new int[size];
+        int n = 0;
+        for (int i = 0; i < logSize; i++)
+        {
+            if (log[i] != TOMBSTONE)
+            {
+                items[n++] = log[i];
+            }
+        }
+        return items;
+    }
+
+    /**
+     * @return the unlocked item ids, newest unlock first.
+     */
+    public int[] toArrayNewestFirst()
+    {
+        int[] items = new int[size];
+        int n = 0;
+        for (int i = logSize - 1; i >= 0; i--)
+        {
+            if (log[i] != TOMBSTONE)
+            {
+                items[n++] = log[i];
+            }
+        }
+        return items;
+    }
+
+    private void compact()
+    {
+        int n = 0;
+        for (int i = 0; i < logSize; i++)
+        {
+            int itemId = log[i];
+            if (itemId != TOMBSTONE)
+            {
+                logIndex[itemId] = n;
+                log[n++] = itemId;
+            }
+        }
+        logSize = n;
+    }
+}
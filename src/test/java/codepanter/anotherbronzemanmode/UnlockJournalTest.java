@@ -0,0 +1,196 @@
+package codepanter.anotherbronzemanmode;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class UnlockJournalTest
+{
+    private static final byte RECORD_UNLOCK = 1;
+    private static final byte RECORD_RELOCK = 2;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File snapshotFile;
+    private File jsonFile;
+    private File journalFile;
+
+    @Before
+    public void before()
+    {
+        snapshotFile = new File(folder.getRoot(), UnlockJournal.SNAPSHOT_FILE_NAME);
+        jsonFile = new File(folder.getRoot(), UnlockJournal.JSON_FILE_NAME);
+        journalFile = new File(folder.getRoot(), UnlockJournal.JOURNAL_FILE_NAME);
+    }
+
+    @Test
+    public void testFlushedChangesAreLoaded() throws IOException
+    {
+        UnlockJournal journal = new UnlockJournal(folder.getRoot());
+        journal.load();
+        journal.unlock(995);
+        journal.unlock(4151);
+        journal.unlock(13190);
+        journal.relock(4151);
+        journal.flush();
+        journal.close();
+
+        assertArrayEquals(new int[]{995, 13190}, new UnlockJournal(folder.getRoot()).load());
+    }
+
+    @Test
+    public void testJournalIsReplayedOverSnapshot() throws IOException
+    {
+        UnlockSnapshot.write(snapshotFile, new int[]{995, 4151});
+        writeJournal(record(RECORD_UNLOCK, 13190), record(RECORD_RELOCK, 995), record(RECORD_UNLOCK, 995));
+
+        assertArrayEquals(new int[]{4151, 13190, 995}, new UnlockJournal(folder.getRoot()).load());
+    }
+
+    @Test
+    public void testDuplicateRecordsAreSkipped() throws IOException
+    {
+        UnlockSnapshot.write(snapshotFile, new int[]{995});
+        writeJournal(record(RECORD_UNLOCK, 995), record(RECORD_UNLOCK, 4151), record(RECORD_UNLOCK, 4151),
+                record(RECORD_RELOCK, 13190));
+
+        assertArrayEquals(new int[]{995, 4151}, new UnlockJournal(folder.getRoot()).load());
+    }
+
+    @Test
+    public void testTruncatedRecordIsDropped() throws IOException
+    {
+        UnlockSnapshot.write(snapshotFile, new int[]{995});
+        writeJournal(record(RECORD_UNLOCK, 4151), new byte[]{RECORD_UNLOCK, 0, 0});
+
+        UnlockJournal journal = new UnlockJournal(folder.getRoot());
+        assertArrayEquals(new int[]{995, 4151}, journal.load());
+        assertEquals(5, journalFile.length());
+
+        // New records are appended after the last complete one.
+        journal.unlock(13190);
+        journal.flush();
+        journal.close();
+        assertArrayEquals(new int[]{995, 4151, 13190}, new UnlockJournal(folder.getRoot()).load());
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnknownRecordType() throws IOException
+    {
+        UnlockSnapshot.write(snapshotFile, new int[]{995});
+        writeJournal(record(RECORD_UNLOCK, 4151), record((byte) 7, 13190));
+
+        new UnlockJournal(folder.getRoot()).load();
+    }
+
+    @Test(expected = IOException.class)
+    public void testNegativeItemId() throws IOException
+    {
+        UnlockSnapshot.write(snapshotFile, new int[]{995});
+        writeJournal(record(RECORD_UNLOCK, -1));
+
+        new UnlockJournal(folder.getRoot()).load();
+    }
+
+    @Test(expected = IOException.class)
+    public void testItemIdOutOfRange() throws IOException
+    {
+        UnlockSnapshot.write(snapshotFile, new int[]{995});
+        writeJournal(record(RECORD_UNLOCK, Integer.MAX_VALUE));
+
+        new UnlockJournal(folder.getRoot()).load();
+    }
+
+    @Test
+    public void testJsonIsImported() throws IOException
+    {
+        Files.write(jsonFile.toPath(), "[995,4151,13190]".getBytes(StandardCharsets.UTF_8));
+
+        assertArrayEquals(new int[]{995, 4151, 13190}, new UnlockJournal(folder.getRoot()).load());
+        assertTrue(snapshotFile.exists());
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncatedJson() throws IOException
+    {
+        Files.write(jsonFile.toPath(), "[995,4151,13".getBytes(StandardCharsets.UTF_8));
+
+        new UnlockJournal(folder.getRoot()).load();
+    }
+
+    @Test(expected = IOException.class)
+    public void testNullJson() throws IOException
+    {
+        Files.write(jsonFile.toPath(), "null".getBytes(StandardCharsets.UTF_8));
+
+        new UnlockJournal(folder.getRoot()).load();
+    }
+
+    @Test
+    public void testCorruptSnapshotIsNotReplaced() throws IOException
+    {
+        UnlockSnapshot.write(snapshotFile, new int[]{995, 4151, 13190});
+        byte[] snapshot = Files.readAllBytes(snapshotFile.toPath());
+        snapshot[10] ^= 0x01;
+        Files.write(snapshotFile.toPath(), snapshot);
+        Files.write(jsonFile.toPath(), "[995]".getBytes(StandardCharsets.UTF_8));
+        writeJournal(record(RECORD_UNLOCK, 4151));
+
+        try
+        {
+            new UnlockJournal(folder.getRoot()).load();
+            fail("Loading a corrupt snapshot should fail");
+        }
+        catch (IOException e)
+        {
+            // The stale JSON file must not be written over the corrupt snapshot.
+            assertArrayEquals(snapshot, Files.readAllBytes(snapshotFile.toPath()));
+            assertTrue(jsonFile.exists());
+            assertEquals(5, journalFile.length());
+        }
+    }
+
+    @Test
+    public void testReset() throws IOException
+    {
+        UnlockSnapshot.write(snapshotFile, new int[]{995});
+        writeJournal(record(RECORD_UNLOCK, 4151));
+
+        UnlockJournal journal = new UnlockJournal(folder.getRoot());
+        journal.load();
+        journal.reset();
+
+        assertFalse(journal.exists());
+    }
+
+    private static byte[] record(byte type, int itemId)
+    {
+        return ByteBuffer.allocate(5).put(type).putInt(itemId).array();
+    }
+
+    private void writeJournal(byte[]... records) throws IOException
+    {
+        try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw"))
+        {
+            for (byte[] record : records)
+            {
+                file.write(record);
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package codepanter.anotherbronzemanmode;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class UnlockNameOrderTest
+{
+    private UnlockNameOrder nameOrder;
+
+    @Before
+    public void before()
+    {
+        nameOrder = new UnlockNameOrder();
+        nameOrder.add(1, "rune scimitar");
+        nameOrder.add(2, "Bronze sword");
+        nameOrder.add(3, "Air rune");
+        nameOrder.add(4, "Bronze sword");
+    }
+
+    @Test
+    public void testIgnoresCase()
+    {
+        assertArrayEquals(new int[]{3, 2, 4, 1}, nameOrder.ascending());
+        assertArrayEquals(new int[]{1, 4, 2, 3}, nameOrder.descending());
+    }
+
+    @Test
+    public void testDuplicateIsSkipped()
+    {
+        nameOrder.add(1, "Abyssal whip");
+
+        assertArrayEquals(new int[]{3, 2, 4, 1}, nameOrder.ascending());
+    }
+
+    @Test
+    public void testRemove()
+    {
+        nameOrder.remove(2);
+        nameOrder.remove(5);
+
+        assertArrayEquals(new int[]{3, 4, 1}, nameOrder.ascending());
+
+        // Added again, it goes after the other item with the same name.
+        nameOrder.add(2, "Bronze sword");
+        assertArrayEquals(new int[]{3, 4, 2, 1}, nameOrder.ascending());
+    }
+
+    @Test
+    public void testClear()
+    {
+        nameOrder.clear();
+        nameOrder.add(600, "Coins");
+
+        assertArrayEquals(new int[]{600}, nameOrder.ascending());
+    }
+}
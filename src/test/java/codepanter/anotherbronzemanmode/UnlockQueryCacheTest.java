@@ -0,0 +1,189 @@
+package codepanter.anotherbronzemanmode;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class UnlockQueryCacheTest
+{
+    private static final String[] NAMES = {
+            "Rune scimitar",
+            "Bronze sword",
+            "Fire rune",
+            "Runite ore",
+            "Bronze sword",
+            "Air rune",
+            "Iron dagger",
+            "Fire rune",
+    };
+    private static final boolean[] TRADEABLE = {true, true, true, true, true, true, false, true};
+    private static final String[] SEARCHES = {"", "rune", "ir"};
+    private static final Set<ItemFacet> NO_FACETS = EnumSet.noneOf(ItemFacet.class);
+
+    private UnlockedItems unlockedItems;
+    private UnlockNameOrder nameOrder;
+    private UnlockSearchIndex searchIndex;
+    private UnlockQueryCache queryCache;
+
+    @Before
+    public void before()
+    {
+        unlockedItems = new UnlockedItems();
+        nameOrder = new UnlockNameOrder();
+        searchIndex = new UnlockSearchIndex();
+        queryCache = new UnlockQueryCache();
+        for (int itemId = 0; itemId < 5; itemId++)
+        {
+            unlock(itemId);
+        }
+    }
+
+    @Test
+    public void testNewToOldIsPatched()
+    {
+        assertPatched(SortOption.NEW_TO_OLD);
+    }
+
+    @Test
+    public void testOldToNewIsPatched()
+    {
+        assertPatched(SortOption.OLD_TO_NEW);
+    }
+
+    @Test
+    public void testAlphabeticalAscIsPatched()
+    {
+        assertPatched(SortOption.ALPHABETICAL_ASC);
+    }
+
+    @Test
+    public void testAlphabeticalDescIsPatched()
+    {
+        assertPatched(SortOption.ALPHABETICAL_DESC);
+    }
+
+    @Test
+    public void testUntradeableIsOnlyAddedWhenShown()
+    {
+        UnlockQueryCache.Key shown = key(true, SortOption.NEW_TO_OLD, "");
+        UnlockQueryCache.Key hidden = key(false, SortOption.NEW_TO_OLD, "");
+        queryCache.put(shown, queryCache.getVersion(), searchIndex.parse(""), filter(shown));
+        queryCache.put(hidden, queryCache.getVersion(), searchIndex.parse(""), filter(hidden));
+
+        unlock(6);
+
+        assertEquals(filter(shown), queryCache.get(shown));
+        assertEquals(filter(hidden), queryCache.get(hidden));
+    }
+
+    @Test
+    public void testStaleResultIsNotCached()
+    {
+        UnlockQueryCache.Key key = key(true, SortOption.NEW_TO_OLD, "");
+        int version = queryCache.getVersion();
+        List<ItemObject> items = filter(key);
+
+        // The unlocks change while the result is being filtered in the background.
+        unlock(5);
+        queryCache.put(key, version, searchIndex.parse(""), items);
+
+        assertNull(queryCache.get(key));
+    }
+
+    /**
+     * Caches every search in a sort order, then checks the patched results against filtering from scratch.
+     */
+    private void assertPatched(SortOption sortOption)
+    {
+        List<UnlockQueryCache.Key> keys = new ArrayList<>();
+        for (String search : SEARCHES)
+        {
+            UnlockQueryCache.Key key = key(true, sortOption, search);
+            queryCache.put(key, queryCache.getVersion(), searchIndex.parse(search), filter(key));
+            keys.add(key);
+        }
+
+        unlock(5);
+        for (UnlockQueryCache.Key key : keys)
+        {
+            assertEquals(filter(key), queryCache.get(key));
+        }
+
+        // An unlock with the same name as an older one.
+        unlock(7);
+        for (UnlockQueryCache.Key key : keys)
+        {
+            assertEquals(filter(key), queryCache.get(key));
+        }
+
+        relock(0);
+        for (UnlockQueryCache.Key key : keys)
+        {
+            assertEquals(filter(key), queryCache.get(key));
+        }
+    }
+
+    private void unlock(int itemId)
+    {
+        unlockedItems.add(itemId);
+        nameOrder.add(itemId, NAMES[itemId]);
+        searchIndex.add(itemId, NAMES[itemId]);
+        queryCache.unlocked(new ItemObject(itemId, NAMES[itemId], TRADEABLE[itemId]), NO_FACETS);
+    }
+
+    private void relock(int itemId)
+    {
+        unlockedItems.remove(itemId);
+        nameOrder.remove(itemId);
+        searchIndex.remove(itemId);
+        queryCache.relocked(itemId);
+    }
+
+    private static UnlockQueryCache.Key key(boolean showUntradeableItems, SortOption sortOption, String search)
+    {
+        return new UnlockQueryCache.Key(showUntradeableItems, sortOption, UnlockSearchIndex.normalize(search), NO_FACETS);
+    }
+
+    /**
+     * Filters the unlocks from scratch the way UnlockFilter does: better matches first, in the sort order otherwise.
+     */
+    private List<ItemObject> filter(UnlockQueryCache.Key key)
+    {
+        UnlockSearchIndex.Query query = searchIndex.parse(key.getSearch());
+        List<ItemObject> items = new ArrayList<>();
+        List<Integer> scores = new ArrayList<>();
+        for (int itemId : key.getSortOption().itemIds(unlockedItems, nameOrder))
+        {
+            int score = query.isEmpty() ? 0 : query.score(itemId, NAMES[itemId].toLowerCase(Locale.ROOT));
+            if (score < 0 || !key.isShowUntradeableItems() && !TRADEABLE[itemId])
+            {
+                continue;
+            }
+            items.add(new ItemObject(itemId, NAMES[itemId], TRADEABLE[itemId]));
+            scores.add(score);
+        }
+
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++)
+        {
+            order.add(i);
+        }
+        order.sort(Comparator.comparing(scores::get, Comparator.reverseOrder()));
+
+        List<ItemObject> sorted = new ArrayList<>();
+        for (int i : order)
+        {
+            sorted.add(items.get(i));
+        }
+        return sorted;
+    }
+}
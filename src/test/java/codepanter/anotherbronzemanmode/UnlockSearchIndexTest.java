@@ -0,0 +1,97 @@
+package codepanter.anotherbronzemanmode;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class UnlockSearchIndexTest
+{
+    private UnlockSearchIndex searchIndex;
+
+    @Before
+    public void before()
+    {
+        searchIndex = new UnlockSearchIndex();
+        searchIndex.add(1, "Rune scimitar");
+        searchIndex.add(2, "Fire rune");
+        searchIndex.add(3, "Runite ore");
+        searchIndex.add(4, "Bronze sword");
+    }
+
+    @Test
+    public void testWordPrefixScoresHigher()
+    {
+        UnlockSearchIndex.Query query = searchIndex.parse("run");
+
+        assertEquals(2, score(query, 1));
+        assertEquals(2, score(query, 2));
+        assertEquals(2, score(query, 3));
+        assertEquals(-1, score(query, 4));
+        assertEquals(1, score(searchIndex.parse("mit"), 1));
+    }
+
+    @Test
+    public void testEveryTermMustMatch()
+    {
+        UnlockSearchIndex.Query query = searchIndex.parse("  RUNE   Scim ");
+
+        assertEquals(4, score(query, 1));
+        assertEquals(-1, score(query, 2));
+    }
+
+    @Test
+    public void testShortQueryChecksEveryName()
+    {
+        UnlockSearchIndex.Query query = searchIndex.parse("or");
+
+        assertEquals(2, score(query, 3));
+        assertEquals(1, score(query, 4));
+        assertEquals(-1, score(query, 1));
+    }
+
+    @Test
+    public void testNoMatch()
+    {
+        UnlockSearchIndex.Query query = searchIndex.parse("dragon");
+
+        for (int itemId = 1; itemId <= 4; itemId++)
+        {
+            assertEquals(-1, score(query, itemId));
+        }
+    }
+
+    @Test
+    public void testEmptyQuery()
+    {
+        assertTrue(searchIndex.parse("   ").isEmpty());
+    }
+
+    @Test
+    public void testRemovedItemDoesNotMatch()
+    {
+        searchIndex.remove(2);
+        UnlockSearchIndex.Query query = searchIndex.parse("fire");
+
+        assertNull(searchIndex.getLowerName(2));
+        assertEquals(-1, query.score(2, "fire rune"));
+        assertEquals(2, score(searchIndex.parse("rune"), 1));
+    }
+
+    @Test
+    public void testRenamedItem()
+    {
+        searchIndex.remove(4);
+        searchIndex.add(4, "Bronze dagger");
+
+        assertEquals(-1, score(searchIndex.parse("sword"), 4));
+        assertEquals(2, score(searchIndex.parse("dagger"), 4));
+    }
+
+    private int score(UnlockSearchIndex.Query query, int itemId)
+    {
+        return query.score(itemId, searchIndex.getLowerName(itemId));
+    }
+}
@@ -0,0 +1,86 @@
+package codepanter.anotherbronzemanmode;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class UnlockSnapshotTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRoundTrip() throws IOException
+    {
+        // Ids going up and down, so deltas of both signs and several varint lengths are written.
+        int[] items = {995, 13190, 4151, 0, 1, 28000, 2, 30000};
+        File file = folder.newFile();
+        UnlockSnapshot.write(file, items);
+
+        assertArrayEquals(items, read(file));
+    }
+
+    @Test
+    public void testEmpty() throws IOException
+    {
+        File file = folder.newFile();
+        UnlockSnapshot.write(file, new int[0]);
+
+        assertArrayEquals(new int[0], read(file));
+    }
+
+    @Test
+    public void testDuplicateIdsAreSkipped() throws IOException
+    {
+        File file = folder.newFile();
+        UnlockSnapshot.write(file, new int[]{995, 4151, 995, 4151, 13190});
+
+        assertArrayEquals(new int[]{995, 4151, 13190}, read(file));
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncated() throws IOException
+    {
+        File file = folder.newFile();
+        UnlockSnapshot.write(file, new int[]{995, 4151, 13190});
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 3));
+
+        read(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncatedHeader() throws IOException
+    {
+        File file = folder.newFile();
+        Files.write(file.toPath(), new byte[]{0x41, 0x42, 0x4D});
+
+        read(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void testChecksumMismatch() throws IOException
+    {
+        File file = folder.newFile();
+        UnlockSnapshot.write(file, new int[]{995, 4151, 13190});
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        bytes[10] ^= 0x01;
+        Files.write(file.toPath(), bytes);
+
+        read(file);
+    }
+
+    private static int[] read(File file) throws IOException
+    {
+        UnlockedItems unlockedItems = new UnlockedItems();
+        UnlockSnapshot.read(file, unlockedItems);
+        return unlockedItems.toArray();
+    }
+}